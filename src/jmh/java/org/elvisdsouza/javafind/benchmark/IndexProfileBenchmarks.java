@@ -0,0 +1,82 @@
+package org.elvisdsouza.javafind.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.FileUtils;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.elvisdsouza.javafind.service.ClassNameIndex;
+import org.elvisdsouza.javafind.service.IndexProfile;
+import org.elvisdsouza.javafind.service.ParallelGroupSearch;
+import org.elvisdsouza.javafind.service.SearchMetrics;
+import org.elvisdsouza.javafind.service.SearchResultCache;
+import org.elvisdsouza.javafind.service.SearchService;
+import org.elvisdsouza.javafind.service.SourcesFilter;
+import org.elvisdsouza.javafind.service.UserQueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index size and cold start per index profile: opening the index and warming its caches, then the first search.
+ * The index size is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class IndexProfileBenchmarks {
+
+    @Param({"ga-only", "ga+classes", "full"})
+    String profile;
+
+    @Param("5000")
+    int groups;
+
+    @Param("10")
+    int versions;
+
+    private File workDir;
+    private File indexDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("javafind-bench").toFile();
+        indexDir = new File(workDir, "central-index");
+        SyntheticIndex.write(indexDir, groups, versions, "sources,", IndexProfile.parse(profile));
+        System.out.printf("%nIndex size with profile %s: %d KB%n", profile, FileUtils.sizeOfDirectory(indexDir) >> 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public SearchResult openAndFirstSearch() throws Exception {
+        SearchService searchService = new SearchService(new SearchResultCache(1, 1), new SourcesFilter(),
+                new UserQueryBuilder(), new ClassNameIndex(), new ParallelGroupSearch(0, 0, 1),
+                new SearchMetrics(new SimpleMeterRegistry()), event -> { }, indexDir,
+                new File(workDir, "central-cache"), "http://localhost/", profile, false, 20);
+        searchService.initialize();
+        try {
+            return searchService.searchUserInput("spring", 1, null);
+        } finally {
+            searchService.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.elvisdsouza.javafind.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.maven.index.ArtifactInfo;
+import org.codehaus.plexus.util.StringUtils;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.Version;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.elvisdsouza.javafind.domain.Suggestion;
+import org.elvisdsouza.javafind.service.ArtifactSuggester;
+import org.elvisdsouza.javafind.service.ClassNameIndex;
+import org.elvisdsouza.javafind.service.IndexGeneration;
+import org.elvisdsouza.javafind.service.ParallelGroupSearch;
+import org.elvisdsouza.javafind.service.SearchMetrics;
+import org.elvisdsouza.javafind.service.SearchResultCache;
+import org.elvisdsouza.javafind.service.SearchService;
+import org.elvisdsouza.javafind.service.SourcesFilter;
+import org.elvisdsouza.javafind.service.UserQueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search hot paths over a synthetic index, uncached: query construction, grouped search, typeahead
+ * suggestions, mapping a group to the API model and serializing a result page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmarks {
+
+    @Param("5000")
+    int groups;
+
+    @Param("10")
+    int versions;
+
+    @Param("sources,javadoc,")
+    String classifiers;
+
+    @Param({"spring", "commons-io", "org.apache.commons", "json cl"})
+    String query;
+
+    // threads ranking one query's groups, 0 for the caller's thread only; e.g. -p searchThreads=1,2,4,8
+    @Param("0")
+    int searchThreads;
+
+    private File workDir;
+    private ParallelGroupSearch parallelGroupSearch;
+    private SearchService searchService;
+    private ArtifactSuggester suggester;
+    private Query filteredQuery;
+    private IndexGeneration generation;
+    private IndexSearcher searcher;
+    private NavigableMap<Version, Integer> mappedVersions;
+    private SearchResult page;
+    private ObjectMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("javafind-bench").toFile();
+        File indexDir = new File(workDir, "central-index");
+        SyntheticIndex.write(indexDir, groups, versions, classifiers);
+
+        SourcesFilter sourcesFilter = new SourcesFilter();
+        parallelGroupSearch = new ParallelGroupSearch(searchThreads, searchThreads, 1);
+        searchService = new SearchService(new SearchResultCache(1, 1), sourcesFilter, new UserQueryBuilder(),
+                new ClassNameIndex(), parallelGroupSearch, new SearchMetrics(new SimpleMeterRegistry()),
+                event -> { }, indexDir, new File(workDir, "central-cache"), "http://localhost/", "full", false, 20);
+        searchService.initialize();
+        filteredQuery = new BooleanQuery.Builder()
+                .add(searchService.constructSuperQuery(query), BooleanClause.Occur.MUST)
+                .add(sourcesFilter.asQuery(), BooleanClause.Occur.FILTER)
+                .build();
+        suggester = new ArtifactSuggester(searchService, new SimpleMeterRegistry());
+        suggester.rebuild();
+        generation = searchService.acquireGeneration();
+        searcher = generation.getContext().acquireIndexSearcher();
+        mappedVersions = sourcesVersions(searcher, sourcesFilter);
+        mapper = new ObjectMapper();
+        page = searchService.searchGrouped("benchmark", filteredQuery, 10, 1, null);
+    }
+
+    /**
+     * The sources versions of the index's first GA, as the grouped search collects them for the mapping.
+     */
+    private static NavigableMap<Version, Integer> sourcesVersions(IndexSearcher searcher, SourcesFilter sourcesFilter)
+            throws Exception {
+        ScoreDoc first = searcher.search(sourcesFilter.asQuery(), 1).scoreDocs[0];
+        String[] ga = StringUtils.split(searcher.doc(first.doc).get(ArtifactInfo.UINFO), ArtifactInfo.FS);
+        Query gaQuery = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(ArtifactInfo.GROUP_ID, ga[0])), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(ArtifactInfo.ARTIFACT_ID, ga[1])), BooleanClause.Occur.FILTER)
+                .add(sourcesFilter.asQuery(), BooleanClause.Occur.FILTER)
+                .build();
+        GenericVersionScheme versionScheme = new GenericVersionScheme();
+        NavigableMap<Version, Integer> versions = new TreeMap<>(Comparator.reverseOrder());
+        for (ScoreDoc hit : searcher.search(gaQuery, Integer.MAX_VALUE).scoreDocs) {
+            String[] uinfo = StringUtils.split(searcher.doc(hit.doc).get(ArtifactInfo.UINFO), ArtifactInfo.FS);
+            versions.putIfAbsent(versionScheme.parseVersion(uinfo[2]), hit.doc);
+        }
+        return versions;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        generation.getContext().releaseIndexSearcher(searcher);
+        searchService.releaseGeneration(generation);
+        searchService.close();
+        parallelGroupSearch.shutdown();
+        suggester.shutdown();
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public Query constructSuperQuery() {
+        return searchService.constructSuperQuery(query);
+    }
+
+    @Benchmark
+    public SearchResult searchGrouped() throws Exception {
+        return searchService.searchGrouped("benchmark", filteredQuery, 10, 1, null);
+    }
+
+    @Benchmark
+    public List<Suggestion> suggest() throws Exception {
+        return suggester.suggest(query, 10);
+    }
+
+    @Benchmark
+    public JavaFindArtifact mapGroup() throws Exception {
+        return SearchService.toArtifact(generation.getContext(), searcher, mappedVersions, 0, 20);
+    }
+
+    @Benchmark
+    public byte[] serializeResult() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+}
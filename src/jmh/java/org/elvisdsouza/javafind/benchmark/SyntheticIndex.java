@@ -0,0 +1,111 @@
+package org.elvisdsouza.javafind.benchmark;
+
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.Indexer;
+import org.apache.maven.index.IndexerEngine;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.PlexusContainer;
+import org.elvisdsouza.javafind.service.IndexProfile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a central-like index of made-up artifacts through the same IndexCreators {@code SearchService} uses.
+ * Names are drawn from a small vocabulary so that queries hit many GAs, as real ones do.
+ */
+public final class SyntheticIndex {
+
+    private static final String[] WORDS = {
+            "spring", "commons", "core", "api", "io", "json", "test", "util", "web", "data",
+            "client", "server", "maven", "plugin", "log", "http", "xml", "security", "cloud", "jdbc"
+    };
+
+    private static final int CLASSES_PER_JAR = 20;
+
+    private SyntheticIndex() {
+    }
+
+    /**
+     * @param classifiers comma separated, an empty entry stands for the main artifact
+     */
+    public static void write(File indexDir, int groups, int versions, String classifiers) throws Exception {
+        write(indexDir, groups, versions, classifiers, IndexProfile.FULL);
+    }
+
+    /**
+     * Writes the fields of the given profile only, as {@code SearchService} does when configured with it.
+     */
+    public static void write(File indexDir, int groups, int versions, String classifiers, IndexProfile profile)
+            throws Exception {
+        DefaultContainerConfiguration config = new DefaultContainerConfiguration();
+        config.setClassPathScanning(PlexusConstants.SCANNING_INDEX);
+        PlexusContainer container = new DefaultPlexusContainer(config);
+        try {
+            Indexer indexer = container.lookup(Indexer.class);
+            // plain adds; Indexer.addArtifactsToIndex looks up every artifact first, reopening the reader each time
+            IndexerEngine engine = container.lookup(IndexerEngine.class);
+            List<IndexCreator> creators = new ArrayList<>();
+            for (String creator : profile.getCreators()) {
+                creators.add(container.lookup(IndexCreator.class, creator));
+            }
+            IndexingContext context = indexer.createIndexingContext("synthetic", "central",
+                    new File(indexDir.getParentFile(), "synthetic-repo"), indexDir, "http://localhost/", null,
+                    true, true, creators);
+
+            Random random = new Random(42);
+            String[] classifierList = classifiers.split(",", -1);
+            for (int g = 0; g < groups; g++) {
+                String groupId = "org." + word(random) + "." + word(random) + g;
+                String artifactId = word(random) + "-" + word(random);
+                for (int v = 0; v < versions; v++) {
+                    for (String classifier : classifierList) {
+                        ArtifactInfo ai = artifact(groupId, artifactId, "1." + v + ".0", classifier);
+                        if (classifier.isEmpty()) {
+                            ai.setClassNames(classNames(groupId, random));
+                        }
+                        engine.index(context, new ArtifactContext(null, null, null, ai, null));
+                    }
+                }
+            }
+            context.rebuildGroups();
+            context.updateTimestamp(true);
+            context.commit();
+            context.close(false);
+        } finally {
+            container.dispose();
+        }
+    }
+
+    private static ArtifactInfo artifact(String groupId, String artifactId, String version, String classifier) {
+        ArtifactInfo ai = new ArtifactInfo("central", groupId, artifactId, version,
+                classifier.isEmpty() ? null : classifier, "jar");
+        ai.setName(artifactId);
+        ai.setDescription("Synthetic " + artifactId + " " + version);
+        ai.setPackaging("jar");
+        ai.setLastModified(System.currentTimeMillis());
+        return ai;
+    }
+
+    private static String classNames(String groupId, Random random) {
+        String pkg = "/" + groupId.replace('.', '/') + "/";
+        StringBuilder names = new StringBuilder();
+        for (int c = 0; c < CLASSES_PER_JAR; c++) {
+            String word = word(random);
+            names.append(pkg).append(Character.toUpperCase(word.charAt(0))).append(word.substring(1))
+                    .append(word(random).toUpperCase().charAt(0)).append(c).append('\n');
+        }
+        return names.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -2,8 +2,10 @@ package org.elvisdsouza.javafind;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class JavafindBackendApplication {
 
 	public static void main(String[] args) {
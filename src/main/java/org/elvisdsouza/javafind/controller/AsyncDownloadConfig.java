@@ -0,0 +1,30 @@
+package org.elvisdsouza.javafind.controller;
+
+import org.elvisdsouza.javafind.service.DownloadLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Response bodies streamed asynchronously, which are the /getFile and /getFiles downloads, are written on the download pool, so
+ * they count against its budget and never compete with the servlet threads.
+ */
+@Configuration
+public class AsyncDownloadConfig implements WebMvcConfigurer {
+
+    private final DownloadLimiter downloadLimiter;
+    private final long timeoutMillis;
+
+    public AsyncDownloadConfig(DownloadLimiter downloadLimiter,
+                               @Value("${javafind.download.timeout-ms:1800000}") long timeoutMillis) {
+        this.downloadLimiter = downloadLimiter;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(downloadLimiter.getExecutor());
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+}
@@ -0,0 +1,36 @@
+package org.elvisdsouza.javafind.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.elvisdsouza.javafind.service.SearchMetrics;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Boot's JSON converter, replaced so that writing a {@link SearchResult} is recorded as the serialize stage.
+ */
+@Component
+public class MeteredJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    private final SearchMetrics searchMetrics;
+
+    public MeteredJsonConverter(ObjectMapper objectMapper, SearchMetrics searchMetrics) {
+        super(objectMapper);
+        this.searchMetrics = searchMetrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (!(object instanceof SearchResult)) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        long start = System.nanoTime();
+        super.writeInternal(object, type, outputMessage);
+        searchMetrics.record(SearchMetrics.Stage.SERIALIZE, start);
+    }
+}
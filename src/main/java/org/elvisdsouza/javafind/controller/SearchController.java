@@ -1,41 +1,225 @@
 package org.elvisdsouza.javafind.controller;
 
+import lombok.extern.slf4j.Slf4j;
+import org.elvisdsouza.javafind.domain.BatchQuery;
+import org.elvisdsouza.javafind.domain.BatchQueryResult;
 import org.elvisdsouza.javafind.domain.JavaFindArtifact;
 import org.elvisdsouza.javafind.domain.SearchResult;
+import org.elvisdsouza.javafind.domain.Suggestion;
+import org.elvisdsouza.javafind.domain.SymbolHit;
+import org.elvisdsouza.javafind.service.ArtifactDownload;
+import org.elvisdsouza.javafind.service.ArtifactPrefetcher;
+import org.elvisdsouza.javafind.service.ArtifactSuggester;
+import org.elvisdsouza.javafind.service.BatchSearchService;
+import org.elvisdsouza.javafind.service.BulkDownloadService;
+import org.elvisdsouza.javafind.service.DownloadLimiter;
+import org.elvisdsouza.javafind.service.DownloadService;
+import org.elvisdsouza.javafind.service.FederatedSearchService;
+import org.elvisdsouza.javafind.service.QueryPopularity;
+import org.elvisdsouza.javafind.service.SearchMode;
 import org.elvisdsouza.javafind.service.SearchService;
+import org.elvisdsouza.javafind.service.SourceSymbolIndex;
+import org.elvisdsouza.javafind.service.UpstreamClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @CrossOrigin // Todo: Remove. Test Only
 @RestController
 public class SearchController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int MAX_VERSIONS_PAGE = 500;
+    private static final int MAX_SYMBOLS = 500;
+    private static final int INDEX_RETRY_AFTER_SECONDS = 5;
+
     @Autowired
     private SearchService searchService;
 
+    @Autowired
+    private DownloadService downloadService;
+
+    @Autowired
+    private ArtifactSuggester artifactSuggester;
+
+    @Autowired
+    private BatchSearchService batchSearchService;
+
+    @Autowired
+    private FederatedSearchService federatedSearchService;
+
+    @Autowired
+    private BulkDownloadService bulkDownloadService;
+
+    @Autowired
+    private ArtifactPrefetcher artifactPrefetcher;
+
+    @Autowired
+    private SourceSymbolIndex sourceSymbolIndex;
+
+    @Autowired
+    private QueryPopularity queryPopularity;
+
     @GetMapping("/searcha")
-    public SearchResult searchForArtifacts(@RequestParam(name = "q") String queryString) throws IOException {
-        return searchService.searchUserInput(queryString);
+    public SearchResult searchForArtifacts(@RequestParam(name = "q") String queryString,
+                                           @RequestParam(name = "page", defaultValue = "1") int page,
+                                           @RequestParam(name = "after", required = false) String after,
+                                           @RequestParam(name = "mode", defaultValue = "artifact") String mode)
+            throws IOException {
+        SearchMode searchMode = SearchMode.parse(mode);
+        SearchResult result = federatedSearchService.search(searchMode, queryString, page, after);
+        if (page == 1 && after == null) {
+            if (searchMode == SearchMode.ARTIFACT) {
+                queryPopularity.record(queryString);
+            }
+            artifactPrefetcher.prefetch(result);
+        }
+        return result;
+    }
+
+    @PostMapping("/searcha/batch")
+    public List<BatchQueryResult> searchBatch(@RequestBody List<BatchQuery> queries) throws IOException {
+        return batchSearchService.search(queries);
+    }
+
+    @GetMapping("/versions")
+    public JavaFindArtifact listVersions(@RequestParam(name = "g") String groupId,
+                                         @RequestParam(name = "a") String artifactId,
+                                         @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                         @RequestParam(name = "limit", defaultValue = "50") int limit) throws IOException {
+        return searchService.listVersions(groupId, artifactId, offset, Math.min(limit, MAX_VERSIONS_PAGE));
+    }
+
+    @GetMapping("/suggest")
+    public List<Suggestion> suggest(@RequestParam(name = "q") String prefix,
+                                    @RequestParam(name = "limit", defaultValue = "10") int limit) throws IOException {
+        return artifactSuggester.suggest(prefix.trim(), Math.min(limit, MAX_SUGGESTIONS));
     }
 
+    /**
+     * Which of the downloaded sources jars declare a class or method, e.g. {@code q=Parser.parse&kind=method}.
+     */
+    @GetMapping("/symbols")
+    public List<SymbolHit> findSymbols(@RequestParam(name = "q") String query,
+                                       @RequestParam(name = "kind", required = false) String kind,
+                                       @RequestParam(name = "limit", defaultValue = "50") int limit) throws IOException {
+        return sourceSymbolIndex.find(query, kind, Math.min(limit, MAX_SYMBOLS));
+    }
+
+    /**
+     * Served on the download pool: the servlet thread is given back while upstream answers and the body streams.
+     */
     //@PostMapping("/getFile")
     @GetMapping("/getFile")
-    public ResponseEntity<byte[]> getFile(@RequestParam("fp") String relFilepath){
-        System.out.println("Downloading file "+relFilepath);
-        byte[] contents = searchService.getFileBytes(relFilepath);
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getFile(@RequestParam("fp") String relFilepath,
+                                                                            @RequestParam(name = "repo", required = false) String repository,
+                                                                            @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+                                                                            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.debug("Downloading file {}", relFilepath);
+        return downloadService.openAsync(repository, relFilepath, range)
+                .thenApply(download -> toResponse(download, ifNoneMatch));
+    }
+
+    /**
+     * The artifacts at the given M2 paths as one zip, streamed as they are fetched.
+     */
+    @PostMapping("/getFiles")
+    public ResponseEntity<StreamingResponseBody> getFiles(@RequestBody List<String> relFilepaths,
+                                                          @RequestParam(name = "repo", required = false) String repository,
+                                                          @RequestParam(name = "name", defaultValue = "artifacts.zip") String filename) {
+        log.debug("Downloading {} files as {}", relFilepaths.size(), filename);
+        BulkDownloadService.Archive archive = bulkDownloadService.prepare(repository, relFilepaths);
         HttpHeaders headers = new HttpHeaders();
-        //headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        String filename = "required.jar";
-        headers.setContentDispositionFormData(filename, filename);
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
         headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-        ResponseEntity<byte[]> response = new ResponseEntity<byte[]>(contents, headers, HttpStatus.OK);
-        return response;
+        return new ResponseEntity<>(archive::writeTo, headers, HttpStatus.OK);
+    }
+
+    private ResponseEntity<StreamingResponseBody> toResponse(ArtifactDownload download, String ifNoneMatch) {
+        if (download.getEtag() != null && etagMatches(ifNoneMatch, download.getEtag())) {
+            try {
+                downloadService.discard(download);
+            } catch (IOException e) {
+                log.debug("Closing unsent download failed", e);
+            }
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(download.getEtag()).build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(download.getFilename()).build());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (download.getContentLength() >= 0) {
+            headers.setContentLength(download.getContentLength());
+        }
+        if (download.getContentRange() != null) {
+            headers.set(HttpHeaders.CONTENT_RANGE, download.getContentRange());
+        }
+        if (download.getEtag() != null) {
+            headers.setETag(download.getEtag());
+        }
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        StreamingResponseBody body = out -> downloadService.transfer(download, out);
+        return new ResponseEntity<>(body, headers, HttpStatus.valueOf(download.getStatus()));
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @ExceptionHandler(FileNotFoundException.class)
+    public ResponseEntity<String> notFound(FileNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Not found: " + e.getMessage());
+    }
+
+    @ExceptionHandler(DownloadService.RangeNotSatisfiableException.class)
+    public ResponseEntity<String> rangeNotSatisfiable(DownloadService.RangeNotSatisfiableException e) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(UpstreamClient.UpstreamException.class)
+    public ResponseEntity<String> upstreamFailed(UpstreamClient.UpstreamException e) {
+        return ResponseEntity.status(e.isTimeout() ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY)
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(DownloadLimiter.BusyException.class)
+    public ResponseEntity<String> downloadsBusy(DownloadLimiter.BusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds())).body(e.getMessage());
+    }
+
+    @ExceptionHandler(SearchService.IndexNotReadyException.class)
+    public ResponseEntity<String> notReady(SearchService.IndexNotReadyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(INDEX_RETRY_AFTER_SECONDS)).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 }
@@ -1,13 +1,26 @@
 package org.elvisdsouza.javafind.controller;
 
+import org.elvisdsouza.javafind.domain.Readiness;
+import org.elvisdsouza.javafind.service.IndexInitializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class TestController {
 
+    @Autowired
+    private IndexInitializer indexInitializer;
+
+    /**
+     * Readiness: 200 once the index is open and warm, 503 with the initialization progress until then.
+     */
     @GetMapping("/check")
-    public String check() {
-        return "OK";
+    public ResponseEntity<Readiness> check() {
+        Readiness readiness = indexInitializer.readiness();
+        return ResponseEntity.status(readiness.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(readiness);
     }
 }
@@ -0,0 +1,17 @@
+package org.elvisdsouza.javafind.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchQuery {
+    private String q;
+    // artifact or class, as for /searcha
+    private String mode = "artifact";
+    private int page = 1;
+    private int pageSize = 10;
+    private String after;
+}
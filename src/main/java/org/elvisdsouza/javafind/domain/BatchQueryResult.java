@@ -0,0 +1,14 @@
+package org.elvisdsouza.javafind.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Either the result of one query of a batch or why it was rejected.
+ */
+@Data
+@AllArgsConstructor
+public class BatchQueryResult {
+    private SearchResult result;
+    private String error;
+}
@@ -3,18 +3,18 @@ package org.elvisdsouza.javafind.domain;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.apache.maven.index.ArtifactInfo;
-import org.apache.maven.index.ArtifactInfoGroup;
 import org.apache.maven.index.artifact.Gav;
 import org.apache.maven.index.artifact.GavCalculator;
 import org.apache.maven.index.artifact.M2GavCalculator;
 import org.apache.maven.index.context.IndexingContext;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Data
 @AllArgsConstructor
 public class JavaFindArtifact {
+    public static final String VERSION_PLACEHOLDER = "{version}";
+
     private String name;
     private String description;
     private String groupId;
@@ -22,9 +22,15 @@ public class JavaFindArtifact {
     //private String version;
     private String classifier;
     private String fileExtension;
+    // id of the repository the artifact was found in
+    private String repository;
     //private String relFilepath;
 
-    private List<JavaFindVersion> versions;
+    // repository path of any version, with {version} in place of the version
+    private String pathTemplate;
+    // latest first, up to the requested number
+    private List<String> versions;
+    private int versionCount;
 
     public JavaFindArtifact() {
     }
@@ -38,14 +44,26 @@ public class JavaFindArtifact {
         //this.version = ai.getVersion();
         this.classifier = ai.getClassifier();
         this.fileExtension = ai.getFileExtension();
+        this.repository = ai.getRepository();
         //this.relFilepath = toRelUrlPath();
     }
 
-    public JavaFindArtifact(ArtifactInfoGroup aig) {
-        this(aig.getArtifactInfos().iterator().next());
-        this.versions = aig.getArtifactInfos().stream()
-                .map(ai -> new JavaFindVersion(ai.getVersion(), toRelUrlPath(ai.getVersion())))
-                .collect(Collectors.toList());
+    /**
+     * @param latest   the artifact of the latest version, which the name and description are taken from
+     * @param versions the versions to list, latest first
+     */
+    public JavaFindArtifact(ArtifactInfo latest, List<String> versions, int versionCount) {
+        this(latest);
+        this.pathTemplate = toRelUrlPath(VERSION_PLACEHOLDER);
+        this.versions = versions;
+        this.versionCount = versionCount;
+    }
+
+    /**
+     * The repository path of one version, as passed to /getFile.
+     */
+    public String relFilepath(String version) {
+        return pathTemplate.replace(VERSION_PLACEHOLDER, version);
     }
 
     /*public Gav toGav() {
@@ -0,0 +1,18 @@
+package org.elvisdsouza.javafind.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Readiness {
+    private boolean ready;
+    // starting, opening-index, importing, opening-mirrors, warming, ready or failed
+    private String phase;
+    private int warmedQueries;
+    private int warmupQueries;
+    private long elapsedMillis;
+    // -1 until the index is open
+    private long indexGeneration;
+    private String error;
+}
@@ -3,11 +3,20 @@ package org.elvisdsouza.javafind.domain;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Collections;
 import java.util.List;
 
 @Data
 @AllArgsConstructor
 public class SearchResult {
     private List<JavaFindArtifact> artifacts;
+    // with mirrors an upper bound, a GA found in several repositories counts once per repository
     private int totalResultCount;
+    private String nextCursor;
+    // repositories that did not answer in time, so the result may be incomplete
+    private List<String> unavailableRepositories;
+
+    public SearchResult(List<JavaFindArtifact> artifacts, int totalResultCount, String nextCursor) {
+        this(artifacts, totalResultCount, nextCursor, Collections.emptyList());
+    }
 }
@@ -5,7 +5,8 @@ import lombok.Data;
 
 @Data
 @AllArgsConstructor
-public class JavaFindVersion {
-    String version;
-    String relFilepath;
+public class Suggestion {
+    private String groupId;
+    private String artifactId;
+    private int versionCount;
 }
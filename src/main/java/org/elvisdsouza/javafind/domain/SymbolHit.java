@@ -0,0 +1,21 @@
+package org.elvisdsouza.javafind.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A class or method declared in a downloaded sources jar.
+ */
+@Data
+@AllArgsConstructor
+public class SymbolHit {
+    private String groupId;
+    private String artifactId;
+    private String version;
+    // class or method
+    private String kind;
+    private String className;
+    private String name;
+    // of the sources jar, as passed to /getFile
+    private String relFilepath;
+}
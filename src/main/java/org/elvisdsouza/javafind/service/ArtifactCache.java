@@ -0,0 +1,329 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of released artifacts, keyed by their M2 relative path. Released artifacts never change, so entries
+ * are only ever dropped by LRU eviction once the cache grows past its size cap. Each file gets a Maven-style
+ * {@code .sha1} sidecar, which doubles as its ETag.
+ */
+@Slf4j
+@Component
+public class ArtifactCache implements MeterBinder {
+
+    private static final String SHA1_SUFFIX = ".sha1";
+    private static final String TMP_DIR = ".tmp";
+
+    private final boolean enabled;
+    private final Path root;
+    private final Path tmpDir;
+    private final long maxBytes;
+
+    // access-ordered, eldest = least recently used
+    private final LinkedHashMap<String, CachedArtifact> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final List<Consumer<CachedArtifact>> commitListeners = new CopyOnWriteArrayList<>();
+
+    public ArtifactCache(@Value("${javafind.artifact-cache.enabled:true}") boolean enabled,
+                         @Value("${javafind.artifact-cache.dir:${user.home}/.javafind/artifact-cache}") String dir,
+                         @Value("${javafind.artifact-cache.max-bytes:10737418240}") long maxBytes) {
+        this.enabled = enabled;
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.tmpDir = root.resolve(TMP_DIR);
+        this.maxBytes = maxBytes;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(tmpDir);
+        // leftovers of transfers interrupted by a restart
+        try (Stream<Path> leftovers = Files.list(tmpDir)) {
+            for (Path leftover : leftovers.collect(Collectors.toList())) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(p -> !p.startsWith(tmpDir) && !p.getFileName().toString().endsWith(SHA1_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+        // oldest first, so the most recently written files end up as the most recently used
+        files.sort(Comparator.comparingLong(ArtifactCache::lastModified));
+
+        synchronized (entries) {
+            for (Path file : files) {
+                Path sidecar = sidecarOf(file);
+                if (!Files.exists(sidecar)) {
+                    // never committed
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                String relPath = root.relativize(file).toString().replace('\\', '/');
+                String sha1 = new String(Files.readAllBytes(sidecar), StandardCharsets.US_ASCII).trim();
+                register(new CachedArtifact(relPath, file, Files.size(file), sha1));
+            }
+            evictOverflow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached artifact for the given canonical M2 path, or {@code null} on a miss.
+     */
+    public CachedArtifact lookup(String relPath) {
+        if (!enabled) {
+            return null;
+        }
+        CachedArtifact cached;
+        synchronized (entries) {
+            cached = entries.get(relPath);
+        }
+        if (cached == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * Whether the artifact is cached, without counting as a hit or a use.
+     */
+    public boolean contains(String relPath) {
+        if (!enabled) {
+            return false;
+        }
+        synchronized (entries) {
+            return entries.containsKey(relPath);
+        }
+    }
+
+    /**
+     * Registers a callback run on the committing thread for every artifact added to the cache; it must not block.
+     */
+    public void addCommitListener(Consumer<CachedArtifact> listener) {
+        commitListeners.add(listener);
+    }
+
+    public Writer newWriter(String relPath) throws IOException {
+        return new Writer(relPath, Files.createTempFile(tmpDir, "artifact", ".part"));
+    }
+
+    void recordServed(long bytes) {
+        bytesServed.add(bytes);
+    }
+
+    private void register(CachedArtifact artifact) {
+        CachedArtifact previous = entries.put(artifact.getRelPath(), artifact);
+        if (previous != null) {
+            totalBytes -= previous.getSize();
+        }
+        totalBytes += artifact.getSize();
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedArtifact> eldest = entries.values().iterator();
+        List<CachedArtifact> evicted = new ArrayList<>();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            CachedArtifact victim = eldest.next();
+            eldest.remove();
+            totalBytes -= victim.getSize();
+            evicted.add(victim);
+        }
+        for (CachedArtifact victim : evicted) {
+            evictions.increment();
+            try {
+                // open readers keep their file handle, so in-flight transfers of the victim still complete
+                Files.deleteIfExists(victim.getFile());
+                Files.deleteIfExists(sidecarOf(victim.getFile()));
+            } catch (IOException e) {
+                log.warn("Could not delete evicted {}", victim.getFile(), e);
+            }
+        }
+    }
+
+    private static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + SHA1_SUFFIX);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long totalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private int entryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("javafind.artifact-cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("javafind.artifact-cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("javafind.artifact-cache.served", bytesServed, LongAdder::sum)
+                .baseUnit("bytes").description("Bytes served from local disk").register(registry);
+        FunctionCounter.builder("javafind.artifact-cache.evictions", evictions, LongAdder::sum).register(registry);
+        Gauge.builder("javafind.artifact-cache.hit-ratio", this, ArtifactCache::hitRatio).register(registry);
+        Gauge.builder("javafind.artifact-cache.size", this, ArtifactCache::totalBytes)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("javafind.artifact-cache.entries", this, ArtifactCache::entryCount).register(registry);
+    }
+
+    @Getter
+    public static class CachedArtifact {
+        private final String relPath;
+        private final Path file;
+        private final long size;
+        private final String sha1;
+
+        CachedArtifact(String relPath, Path file, long size, String sha1) {
+            this.relPath = relPath;
+            this.file = file;
+            this.size = size;
+            this.sha1 = sha1;
+        }
+
+        public String getEtag() {
+            return "\"" + sha1 + "\"";
+        }
+    }
+
+    /**
+     * Writes an artifact into a temp file; it only becomes visible to {@link #lookup} once committed.
+     */
+    public class Writer {
+        private final String relPath;
+        private final Path tmpFile;
+        private final OutputStream out;
+        private final MessageDigest sha1;
+        private long written;
+
+        Writer(String relPath, Path tmpFile) throws IOException {
+            this.relPath = relPath;
+            this.tmpFile = tmpFile;
+            this.out = Files.newOutputStream(tmpFile);
+            try {
+                this.sha1 = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            sha1.update(b, off, len);
+            written += len;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public Path getTmpFile() {
+            return tmpFile;
+        }
+
+        public CachedArtifact commit() throws IOException {
+            out.close();
+            Path target = root.resolve(relPath).normalize();
+            if (!target.startsWith(root) || target.startsWith(tmpDir)) {
+                abort();
+                throw new IllegalArgumentException("Refusing to cache outside of " + root + ": " + relPath);
+            }
+            Files.createDirectories(target.getParent());
+            String hex = toHex(sha1.digest());
+            Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.write(sidecarOf(target), hex.getBytes(StandardCharsets.US_ASCII));
+
+            CachedArtifact artifact = new CachedArtifact(relPath, target, written, hex);
+            synchronized (entries) {
+                register(artifact);
+                evictOverflow();
+            }
+            for (Consumer<CachedArtifact> listener : commitListeners) {
+                try {
+                    listener.accept(artifact);
+                } catch (RuntimeException e) {
+                    log.warn("Commit listener failed for {}", relPath, e);
+                }
+            }
+            return artifact;
+        }
+
+        public void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(tmpFile);
+            } catch (IOException e) {
+                log.warn("Could not delete {}", tmpFile, e);
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package org.elvisdsouza.javafind.service;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An opened artifact body, either streamed from upstream or served from the local {@link ArtifactCache}.
+ */
+@Getter
+public abstract class ArtifactDownload implements Closeable {
+    private final String filename;
+    private final int status;
+    // -1 when unknown
+    private final long contentLength;
+    // only set for 206 responses
+    private final String contentRange;
+    // only known for locally cached artifacts
+    private final String etag;
+
+    protected ArtifactDownload(String filename, int status, long contentLength, String contentRange, String etag) {
+        this.filename = filename;
+        this.status = status;
+        this.contentLength = contentLength;
+        this.contentRange = contentRange;
+        this.etag = etag;
+    }
+
+    /**
+     * Copies the body to {@code out} and closes this download.
+     */
+    public abstract long transferTo(OutputStream out, int bufferSize) throws IOException;
+
+    public static class Streamed extends ArtifactDownload {
+        private final InputStream body;
+
+        public Streamed(String filename, int status, long contentLength, String contentRange, InputStream body) {
+            super(filename, status, contentLength, contentRange, null);
+            this.body = body;
+        }
+
+        @Override
+        public long transferTo(OutputStream out, int bufferSize) throws IOException {
+            byte[] buffer = new byte[bufferSize];
+            long transferred = 0;
+            int read;
+            try {
+                while ((read = body.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    transferred += read;
+                }
+            } finally {
+                close();
+            }
+            return transferred;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * Serves a region of a local file with {@link FileChannel#transferTo}. The servlet output stream is not a
+     * socket channel, so this is not zero-copy: the JDK reads the file through a small temporary buffer and the
+     * {@link Channels#newChannel} wrapper copies that into the stream, which buffers it again. It only saves opening
+     * a stream on the file and sizing a buffer for it.
+     */
+    public static class Local extends ArtifactDownload {
+        private final FileChannel channel;
+        private final long position;
+        private final ArtifactCache cache;
+
+        public Local(String filename, int status, long contentLength, String contentRange, String etag,
+                     FileChannel channel, long position, ArtifactCache cache) {
+            super(filename, status, contentLength, contentRange, etag);
+            this.channel = channel;
+            this.position = position;
+            this.cache = cache;
+        }
+
+        @Override
+        public long transferTo(OutputStream out, int bufferSize) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            try {
+                while (transferred < getContentLength()) {
+                    long n = channel.transferTo(position + transferred, getContentLength() - transferred, target);
+                    if (n <= 0) {
+                        break;
+                    }
+                    transferred += n;
+                }
+            } finally {
+                cache.recordServed(transferred);
+                close();
+            }
+            return transferred;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warms the {@link ArtifactCache} with what a search is likely to be followed by: the latest version of its top few
+ * results, which is what users mostly download. Prefetches run on a few low priority threads within a shared
+ * bandwidth cap, and never hold up a real download: one asking for an artifact that is being prefetched takes the
+ * fetch over unthrottled. Off by default.
+ * <p>
+ * Whether it pays off is {@code javafind.prefetch.hits} over {@code javafind.prefetch.fetched}.
+ */
+@Slf4j
+@Component
+public class ArtifactPrefetcher {
+
+    private final SearchService searchService;
+    private final ArtifactCache artifactCache;
+    private final InFlightDownloads inFlightDownloads;
+    private final boolean enabled;
+    private final int topResults;
+    private final int tracked;
+    private final ThreadPoolExecutor executor;
+    private final BandwidthLimiter bandwidth;
+
+    // prefetched but not downloaded yet, eldest first; guarded by itself
+    private final Map<String, Boolean> prefetched = new LinkedHashMap<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final Counter queuedCount;
+    private final Counter alreadyCached;
+    private final Counter dropped;
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder unused = new LongAdder();
+
+    public ArtifactPrefetcher(SearchService searchService, ArtifactCache artifactCache,
+                              InFlightDownloads inFlightDownloads, MeterRegistry registry,
+                              @Value("${javafind.prefetch.enabled:false}") boolean enabled,
+                              @Value("${javafind.prefetch.top-results:3}") int topResults,
+                              @Value("${javafind.prefetch.threads:2}") int threads,
+                              @Value("${javafind.prefetch.queue-size:64}") int queueSize,
+                              @Value("${javafind.prefetch.max-bytes-per-second:5242880}") long maxBytesPerSecond,
+                              @Value("${javafind.prefetch.tracked:10000}") int tracked) {
+        this.searchService = searchService;
+        this.artifactCache = artifactCache;
+        this.inFlightDownloads = inFlightDownloads;
+        this.enabled = enabled && artifactCache.isEnabled();
+        this.topResults = topResults;
+        this.tracked = tracked;
+        this.bandwidth = new BandwidthLimiter(maxBytesPerSecond);
+        AtomicInteger threadCount = new AtomicInteger();
+        // a full queue drops the prefetch, it is only a guess
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "artifact-prefetch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        queuedCount = requests(registry, "queued");
+        alreadyCached = requests(registry, "cached");
+        dropped = requests(registry, "dropped");
+        FunctionCounter.builder("javafind.prefetch.fetched", fetched, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.prefetch.failed", failed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.prefetch.hits", hits, LongAdder::sum)
+                .description("Downloads of an artifact that was prefetched for them").register(registry);
+        FunctionCounter.builder("javafind.prefetch.unused", unused, LongAdder::sum)
+                .description("Prefetched artifacts that were not downloaded before they stopped being tracked")
+                .register(registry);
+        Gauge.builder("javafind.prefetch.queued", executor, e -> e.getQueue().size()).register(registry);
+    }
+
+    private static Counter requests(MeterRegistry registry, String outcome) {
+        return Counter.builder("javafind.prefetch.requests").tag("outcome", outcome).register(registry);
+    }
+
+    /**
+     * Queues the latest version of the top results of a search for prefetching; returns right away.
+     */
+    public void prefetch(SearchResult result) {
+        if (!enabled || result.getArtifacts() == null) {
+            return;
+        }
+        List<JavaFindArtifact> artifacts = result.getArtifacts();
+        for (int i = 0; i < Math.min(topResults, artifacts.size()); i++) {
+            JavaFindArtifact artifact = artifacts.get(i);
+            if (artifact.getVersions() == null || artifact.getVersions().isEmpty()) {
+                continue;
+            }
+            String relPath;
+            try {
+                relPath = searchService.toCanonicalRelPath(artifact.relFilepath(artifact.getVersions().get(0)));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            submit(artifact.getRepository(), relPath);
+        }
+    }
+
+    private void submit(String repository, String relPath) {
+        if (artifactCache.contains(relPath)) {
+            alreadyCached.increment();
+            return;
+        }
+        if (!queued.add(relPath)) {
+            return;
+        }
+        try {
+            executor.execute(() -> fetch(repository, relPath));
+            queuedCount.increment();
+        } catch (RejectedExecutionException e) {
+            queued.remove(relPath);
+            dropped.increment();
+        }
+    }
+
+    private void fetch(String repository, String relPath) {
+        try {
+            if (artifactCache.contains(relPath)) {
+                alreadyCached.increment();
+                return;
+            }
+            String url = searchService.relPathToUrl(repository, relPath);
+            // tracked from the start, so a download joining the prefetch counts as a hit too
+            track(relPath);
+            if (inFlightDownloads.prefetch(relPath, url, bandwidth)) {
+                fetched.increment();
+            } else {
+                untrack(relPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            untrack(relPath);
+            failed.increment();
+            log.debug("Prefetching {} failed", relPath, e);
+        } finally {
+            queued.remove(relPath);
+        }
+    }
+
+    /**
+     * Called for every download, to count the ones a prefetch was made for.
+     */
+    public void recordDownload(String relPath) {
+        if (enabled && untrack(relPath)) {
+            hits.increment();
+        }
+    }
+
+    private void track(String relPath) {
+        synchronized (prefetched) {
+            prefetched.put(relPath, Boolean.TRUE);
+            if (prefetched.size() > tracked) {
+                prefetched.remove(prefetched.keySet().iterator().next());
+                unused.increment();
+            }
+        }
+    }
+
+    private boolean untrack(String relPath) {
+        synchronized (prefetched) {
+            return prefetched.remove(relPath) != null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One byte budget for all prefetches together. Each chunk pushes the next free slot out by its share of the
+     * rate and its reader sleeps until then; idle time is not saved up.
+     */
+    private static class BandwidthLimiter implements InFlightDownloads.Throttle {
+        private final long bytesPerSecond;
+        private long nextFree = System.nanoTime();
+
+        BandwidthLimiter(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public void acquire(int bytes) throws IOException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                nextFree = Math.max(now, nextFree) + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+                wait = nextFree - now;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted prefetching");
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexingContext;
+import org.elvisdsouza.javafind.domain.Suggestion;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Typeahead completions for groupIds and artifactIds, served from an FST held in memory instead of a wildcard
+ * query. Every GA is added twice, as {@code groupId:artifactId} and {@code artifactId|groupId}, so either can be
+ * typed first; the output of a key is its weight, inverted so that the shortest paths are the GAs with the most
+ * versions. Keys are lowercased, as the artifact search matches, and carry the GA as deployed after a
+ * {@code \0} when that differs. Only GAs with a sources jar are added, with the number of versions that have one,
+ * since those are all a search would list. The FST is rebuilt from the UINFO terms of each new index generation, on
+ * its own thread, and replaced in one write.
+ */
+@Slf4j
+@Component
+public class ArtifactSuggester {
+
+    private static final char GROUP_FIRST = ':';
+    private static final char ARTIFACT_FIRST = '|';
+    private static final char AS_DEPLOYED = '\0';
+    private static final long MAX_WEIGHT = Integer.MAX_VALUE;
+    private static final PositiveIntOutputs OUTPUTS = PositiveIntOutputs.getSingleton();
+    private static final String SOURCES = "sources";
+
+    private final SearchService searchService;
+    // empty until the first generation is live
+    private volatile Completions completions = new Completions(null, 0);
+    private final LongAdder builds = new LongAdder();
+    private final ExecutorService buildExecutor;
+    private final AtomicBoolean buildPending = new AtomicBoolean();
+
+    // registers its meters itself: as a MeterBinder its dependency on SearchService would form a cycle with the registry
+    public ArtifactSuggester(SearchService searchService, MeterRegistry registry) {
+        this.searchService = searchService;
+        this.buildExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "suggest-build");
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("javafind.suggest.size", this, s -> s.completions.fst == null ? 0 : s.completions.fst.ramBytesUsed())
+                .baseUnit("bytes").description("Memory held by the suggestion FST").register(registry);
+        Gauge.builder("javafind.suggest.artifacts", this, s -> s.completions.artifacts).register(registry);
+        FunctionCounter.builder("javafind.suggest.builds", builds, LongAdder::sum).register(registry);
+    }
+
+    /**
+     * Rebuilds on the build thread rather than the one swapping in the generation, at most one rebuild queued at a
+     * time; until it is done the previous generation's completions are served.
+     */
+    @EventListener
+    public void onGenerationChanged(IndexGenerationChangedEvent event) {
+        if (!buildPending.compareAndSet(false, true)) {
+            return;
+        }
+        buildExecutor.execute(() -> {
+            buildPending.set(false);
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.warn("Could not build suggestions", e);
+            }
+        });
+    }
+
+    /**
+     * Up to {@code limit} GAs whose groupId or artifactId starts with {@code prefix}, most versions first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) throws IOException {
+        Completions current = completions;
+        if (current.fst == null || prefix.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        FST<Long> fst = current.fst;
+        FST.BytesReader reader = fst.getBytesReader();
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        BytesRef prefixBytes = new BytesRef(lowerPrefix);
+
+        FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<>());
+        Long prefixOutput = OUTPUTS.getNoOutput();
+        for (int i = 0; i < prefixBytes.length; i++) {
+            if (fst.findTargetArc(prefixBytes.bytes[prefixBytes.offset + i] & 0xff, arc, arc, reader) == null) {
+                return Collections.emptyList();
+            }
+            prefixOutput = OUTPUTS.add(prefixOutput, arc.output);
+        }
+
+        // a GA can match through both of its keys
+        Util.TopResults<Long> paths = Util.shortestPaths(fst, arc, prefixOutput, Comparator.naturalOrder(),
+                limit * 2, true);
+        Set<String> seen = new HashSet<>();
+        List<Suggestion> suggestions = new ArrayList<>(limit);
+        BytesRefBuilder completion = new BytesRefBuilder();
+        for (Util.Result<Long> path : paths) {
+            // paths start after the prefix
+            String key = lowerPrefix + Util.toBytesRef(path.input, completion).utf8ToString();
+            Suggestion suggestion = toSuggestion(key, path.output);
+            if (seen.add(suggestion.getGroupId() + GROUP_FIRST + suggestion.getArtifactId())) {
+                suggestions.add(suggestion);
+                if (suggestions.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    private static Suggestion toSuggestion(String key, long output) {
+        int versions = (int) (MAX_WEIGHT - output);
+        key = key.substring(key.indexOf(AS_DEPLOYED) + 1);
+        int separator = key.indexOf(GROUP_FIRST);
+        if (separator >= 0) {
+            return new Suggestion(key.substring(0, separator), key.substring(separator + 1), versions);
+        }
+        separator = key.indexOf(ARTIFACT_FIRST);
+        return new Suggestion(key.substring(separator + 1), key.substring(0, separator), versions);
+    }
+
+    /**
+     * Builds the completions of the current generation on the calling thread.
+     */
+    public synchronized void rebuild() throws IOException {
+        long start = System.nanoTime();
+        IndexGeneration generation = searchService.acquireGeneration();
+        Map<String, Integer> versionCounts;
+        try {
+            versionCounts = countVersions(generation.getContext());
+        } finally {
+            searchService.releaseGeneration(generation);
+        }
+
+        List<Key> keys = new ArrayList<>(versionCounts.size() * 2);
+        versionCounts.forEach((ga, versions) -> {
+            int split = ga.indexOf(GROUP_FIRST);
+            keys.add(Key.of(ga, versions));
+            keys.add(Key.of(ga.substring(split + 1) + ARTIFACT_FIRST + ga.substring(0, split), versions));
+        });
+        // the FST takes its inputs in unsigned byte order, which is how BytesRef compares
+        Collections.sort(keys);
+
+        Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, OUTPUTS);
+        IntsRefBuilder scratch = new IntsRefBuilder();
+        for (Key key : keys) {
+            builder.add(Util.toIntsRef(key.bytes, scratch), MAX_WEIGHT - key.weight);
+        }
+        FST<Long> fst = builder.finish();
+
+        completions = new Completions(fst, versionCounts.size());
+        builds.increment();
+        log.info("Built suggestions for {} artifacts of generation {}: {} bytes in {} ms", versionCounts.size(),
+                generation.getNumber(), fst == null ? 0 : fst.ramBytesUsed(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Distinct versions with a sources jar per {@code groupId:artifactId}, from the UINFO terms
+     * ({@code groupId|artifactId|version|classifier|extension}). Terms sort so that all of a GA's entries, and
+     * within them all of a version's, are adjacent.
+     */
+    private static Map<String, Integer> countVersions(IndexingContext context) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        IndexSearcher searcher = context.acquireIndexSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            Terms terms = MultiFields.getTerms(reader, ArtifactInfo.UINFO);
+            if (terms == null) {
+                return counts;
+            }
+            Bits liveDocs = MultiFields.getLiveDocs(reader);
+            TermsEnum termsEnum = terms.iterator();
+            PostingsEnum postings = null;
+            String lastGa = null;
+            String lastVersion = null;
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                if (liveDocs != null) {
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    if (!hasLiveDoc(postings, liveDocs)) {
+                        continue;
+                    }
+                }
+                String[] uinfo = term.utf8ToString().split("\\" + ArtifactInfo.FS, -1);
+                if (uinfo.length < 4 || !SOURCES.equals(uinfo[3])) {
+                    continue;
+                }
+                String ga = uinfo[0] + GROUP_FIRST + uinfo[1];
+                if (!ga.equals(lastGa)) {
+                    lastGa = ga;
+                    lastVersion = null;
+                }
+                if (!uinfo[2].equals(lastVersion)) {
+                    lastVersion = uinfo[2];
+                    counts.merge(ga, 1, Integer::sum);
+                }
+            }
+            return counts;
+        } finally {
+            context.releaseIndexSearcher(searcher);
+        }
+    }
+
+    private static boolean hasLiveDoc(PostingsEnum postings, Bits liveDocs) throws IOException {
+        for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+            if (liveDocs.get(doc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Key implements Comparable<Key> {
+        final BytesRef bytes;
+        final int weight;
+
+        Key(String key, int weight) {
+            this.bytes = new BytesRef(key);
+            this.weight = weight;
+        }
+
+        static Key of(String deployed, int weight) {
+            String lower = deployed.toLowerCase(Locale.ROOT);
+            return new Key(lower.equals(deployed) ? lower : lower + AS_DEPLOYED + deployed, weight);
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return bytes.compareTo(other.bytes);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    private static class Completions {
+        // null when the index has no artifacts
+        final FST<Long> fst;
+        final int artifacts;
+
+        Completions(FST<Long> fst, int artifacts) {
+            this.fst = fst;
+            this.artifacts = artifacts;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.elvisdsouza.javafind.domain.BatchQuery;
+import org.elvisdsouza.javafind.domain.BatchQueryResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the queries of one request in parallel, all against the same index generation, so a batch sees one
+ * consistent index and pays for the HTTP round trip once. The pool is bounded; once its queue is full the request
+ * thread runs its queries itself, which slows that batch down instead of queueing without limit.
+ */
+@Service
+public class BatchSearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final SearchService searchService;
+    private final int maxQueries;
+    private final ExecutorService executor;
+
+    public BatchSearchService(SearchService searchService, MeterRegistry registry,
+                              @Value("${javafind.search.batch.max-queries:100}") int maxQueries,
+                              @Value("${javafind.search.batch.threads:0}") int threads,
+                              @Value("${javafind.search.batch.queue-size:256}") int queueSize) {
+        this.searchService = searchService;
+        this.maxQueries = maxQueries;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "batch-search-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(registry, pool, "javafind.search.batch");
+    }
+
+    /**
+     * The results in the order of {@code queries}. A query that is invalid on its own gets an error entry rather
+     * than failing the batch.
+     *
+     * @throws IllegalArgumentException if the batch is larger than allowed
+     */
+    public List<BatchQueryResult> search(List<BatchQuery> queries) throws IOException {
+        if (queries.size() > maxQueries) {
+            throw new IllegalArgumentException("At most " + maxQueries + " queries per batch, got " + queries.size());
+        }
+        if (queries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        IndexGeneration generation = searchService.acquireGeneration();
+        try {
+            List<Future<BatchQueryResult>> futures = new ArrayList<>(queries.size());
+            for (BatchQuery query : queries) {
+                futures.add(executor.submit(() -> searchOne(generation, query)));
+            }
+            List<BatchQueryResult> results = new ArrayList<>(queries.size());
+            try {
+                for (Future<BatchQueryResult> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted running a batch search");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } finally {
+                // after a failure the other queries may still be running on the generation released below
+                awaitQuietly(futures);
+            }
+            return results;
+        } finally {
+            searchService.releaseGeneration(generation);
+        }
+    }
+
+    private BatchQueryResult searchOne(IndexGeneration generation, BatchQuery query) throws IOException {
+        try {
+            if (query.getQ() == null || query.getQ().trim().isEmpty()) {
+                throw new IllegalArgumentException("Missing query");
+            }
+            if (query.getPageSize() < 1 || query.getPageSize() > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            // an explicit "mode": null gets the /searcha default too
+            SearchMode mode = query.getMode() == null ? SearchMode.ARTIFACT : SearchMode.parse(query.getMode());
+            return new BatchQueryResult(searchService.search(generation, mode,
+                    query.getQ(), query.getPageSize(), query.getPage(), query.getAfter()), null);
+        } catch (IllegalArgumentException e) {
+            return new BatchQueryResult(null, e.getMessage());
+        }
+    }
+
+    private static void awaitQuietly(List<Future<BatchQueryResult>> futures) {
+        for (Future<BatchQueryResult> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // already reported through the first failure
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
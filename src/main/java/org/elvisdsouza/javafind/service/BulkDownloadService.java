@@ -0,0 +1,237 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams many artifacts as one zip, such as the sources of a whole dependency set. A few artifacts of an archive
+ * are opened ahead on a shared pool, through {@link DownloadService#open} so the local cache is used and filled,
+ * and each is written as a zip entry as soon as it is open. Bodies are only ever streamed, so the archive is never
+ * held in memory. Artifacts that cannot be fetched are listed in a last {@value #FAILURES_ENTRY} entry rather than
+ * failing the whole archive.
+ */
+@Slf4j
+@Service
+public class BulkDownloadService {
+
+    static final String FAILURES_ENTRY = "FAILED.txt";
+
+    private final SearchService searchService;
+    private final DownloadService downloadService;
+    private final DownloadLimiter downloadLimiter;
+    private final DownloadMetrics downloadMetrics;
+    private final int maxFiles;
+    private final int parallelism;
+    private final int bufferSize;
+    private final ExecutorService executor;
+
+    public BulkDownloadService(SearchService searchService, DownloadService downloadService,
+                               DownloadLimiter downloadLimiter, DownloadMetrics downloadMetrics, MeterRegistry registry,
+                               @Value("${javafind.download.bulk.max-files:500}") int maxFiles,
+                               @Value("${javafind.download.bulk.parallelism:4}") int parallelism,
+                               @Value("${javafind.download.bulk.fetch-threads:16}") int fetchThreads,
+                               @Value("${javafind.download.buffer-size:65536}") int bufferSize) {
+        this.searchService = searchService;
+        this.downloadService = downloadService;
+        this.downloadLimiter = downloadLimiter;
+        this.downloadMetrics = downloadMetrics;
+        this.maxFiles = maxFiles;
+        this.parallelism = Math.max(1, parallelism);
+        this.bufferSize = bufferSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = ExecutorServiceMetrics.monitor(registry, Executors.newFixedThreadPool(fetchThreads, r -> {
+            Thread t = new Thread(r, "bulk-fetch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }), "javafind.download.bulk");
+    }
+
+    /**
+     * Checks the requested paths and takes one slot of the {@link DownloadLimiter} budget for the whole archive,
+     * which is given back once {@link Archive#writeTo} returns.
+     *
+     * @param repository the repository the artifacts were found in, {@code null} for central
+     * @throws IllegalArgumentException      for an empty or too large list, a path that is not an artifact path or
+     *                                       an unknown repository
+     * @throws DownloadLimiter.BusyException when the budget is exhausted
+     */
+    public Archive prepare(String repository, List<String> relFilepaths) {
+        if (relFilepaths.isEmpty()) {
+            throw new IllegalArgumentException("No artifacts requested");
+        }
+        if (relFilepaths.size() > maxFiles) {
+            throw new IllegalArgumentException("At most " + maxFiles + " artifacts per archive, got " + relFilepaths.size());
+        }
+        Set<String> relPaths = new LinkedHashSet<>();
+        for (String relFilepath : relFilepaths) {
+            relPaths.add(searchService.toCanonicalRelPath(relFilepath));
+        }
+        searchService.repositoryUrl(repository);
+        downloadLimiter.admit();
+        return new Archive(repository, new ArrayList<>(relPaths));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One zip being written. Entries are named by their M2 path and come in the order they finished opening.
+     */
+    public class Archive {
+        private final String repository;
+        private final List<String> relPaths;
+        // opened but not yet written, closed if the archive is abandoned
+        private final Set<ArtifactDownload> unwritten = new LinkedHashSet<>();
+        private boolean abandoned;
+
+        private Archive(String repository, List<String> relPaths) {
+            this.repository = repository;
+            this.relPaths = relPaths;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            long start = System.nanoTime();
+            CountingOutputStream counted = new CountingOutputStream(out);
+            downloadMetrics.transferStarted();
+            try {
+                write(counted);
+            } finally {
+                abandon();
+                downloadMetrics.transferFinished(counted.getByteCount(), start);
+                downloadLimiter.release();
+            }
+        }
+
+        private void write(OutputStream out) throws IOException {
+            CompletionService<Opened> opening = new ExecutorCompletionService<>(executor);
+            Iterator<String> next = relPaths.iterator();
+            int pending = 0;
+            for (; pending < parallelism && next.hasNext(); pending++) {
+                submit(opening, next.next());
+            }
+            Map<String, String> failures = new LinkedHashMap<>();
+            // the response stream is the container's to close
+            ZipOutputStream zip = new ZipOutputStream(CloseShieldOutputStream.wrap(out));
+            try {
+                // jars are compressed already
+                zip.setLevel(Deflater.NO_COMPRESSION);
+                while (pending > 0) {
+                    Opened opened = take(opening);
+                    pending--;
+                    if (next.hasNext()) {
+                        submit(opening, next.next());
+                        pending++;
+                    }
+                    if (opened.failure != null) {
+                        log.debug("Leaving {} out of the archive", opened.relPath, opened.failure);
+                        failures.put(opened.relPath, opened.failure.toString());
+                        continue;
+                    }
+                    synchronized (this) {
+                        unwritten.remove(opened.download);
+                    }
+                    zip.putNextEntry(new ZipEntry(opened.relPath));
+                    opened.download.transferTo(zip, bufferSize);
+                    zip.closeEntry();
+                }
+                if (!failures.isEmpty()) {
+                    zip.putNextEntry(new ZipEntry(FAILURES_ENTRY));
+                    StringBuilder listing = new StringBuilder();
+                    failures.forEach((relPath, reason) -> listing.append(relPath).append(": ").append(reason).append('\n'));
+                    zip.write(listing.toString().getBytes(StandardCharsets.UTF_8));
+                    zip.closeEntry();
+                }
+                zip.finish();
+            } finally {
+                zip.close();
+            }
+        }
+
+        private void submit(CompletionService<Opened> opening, String relPath) {
+            opening.submit(() -> {
+                ArtifactDownload download;
+                try {
+                    download = downloadService.open(repository, relPath, null);
+                } catch (IOException e) {
+                    return new Opened(relPath, null, e);
+                }
+                synchronized (this) {
+                    if (abandoned) {
+                        download.close();
+                        return new Opened(relPath, null, new IOException("Archive abandoned"));
+                    }
+                    unwritten.add(download);
+                }
+                return new Opened(relPath, download, null);
+            });
+        }
+
+        private Opened take(CompletionService<Opened> opening) throws IOException {
+            try {
+                return opening.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted writing archive");
+            } catch (ExecutionException e) {
+                throw new IOException("Opening an artifact failed", e.getCause());
+            }
+        }
+
+        /**
+         * Closes whatever was opened ahead and not written, after a failed write or a client that went away.
+         * Opens still running close their download themselves.
+         */
+        private synchronized void abandon() {
+            abandoned = true;
+            for (ArtifactDownload download : unwritten) {
+                try {
+                    download.close();
+                } catch (IOException e) {
+                    log.debug("Closing an unwritten download failed", e);
+                }
+            }
+            unwritten.clear();
+        }
+    }
+
+    private static class Opened {
+        final String relPath;
+        final ArtifactDownload download;
+        final IOException failure;
+
+        Opened(String relPath, ArtifactDownload download, IOException failure) {
+            this.relPath = relPath;
+            this.download = download;
+            this.failure = failure;
+        }
+    }
+}
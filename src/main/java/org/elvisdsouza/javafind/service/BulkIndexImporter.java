@@ -0,0 +1,323 @@
+package org.elvisdsouza.javafind.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexUtils;
+import org.apache.maven.index.context.IndexingContext;
+import org.apache.maven.index.context.NexusAnalyzer;
+import org.apache.maven.index.updater.IndexDataReader.IndexDataReadResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Seeds an empty node from a pre-downloaded {@code nexus-maven-repository-index.gz} on local disk. Inflating,
+ * record decoding and document analysis/writing run as separate pipeline stages, the last one on several threads,
+ * into a writer with a large RAM buffer. The imported index then takes incremental updates as usual.
+ * <p>
+ * Runs as part of the background startup, see {@link IndexInitializer}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "javafind.index.import.dir")
+public class BulkIndexImporter {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 1000;
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    private final SearchService searchService;
+    private final File sourceDir;
+    private final int writerThreads;
+    private final double ramBufferMb;
+
+    public BulkIndexImporter(SearchService searchService,
+                             @Value("${javafind.index.import.dir}") File sourceDir,
+                             @Value("${javafind.index.import.threads:0}") int writerThreads,
+                             @Value("${javafind.index.import.ram-buffer-mb:512}") double ramBufferMb) {
+        this.searchService = searchService;
+        this.sourceDir = sourceDir;
+        this.writerThreads = writerThreads > 0 ? writerThreads : Runtime.getRuntime().availableProcessors();
+        this.ramBufferMb = ramBufferMb;
+    }
+
+    /**
+     * Imports from the configured directory unless the index already has content.
+     */
+    public void importIfEmpty() throws IOException {
+        if (searchService.getCentralContext().getTimestamp() != null) {
+            log.info("Index already present, not importing from {}", sourceDir);
+            return;
+        }
+        importFrom(sourceDir);
+    }
+
+    /**
+     * Imports the full index file in {@code dir} into a new generation and swaps it in. The transfer properties next
+     * to it, if present, become the updater state, so the next update only fetches newer incremental chunks.
+     */
+    public IndexDataReadResult importFrom(File dir) throws IOException {
+        File indexFile = new File(dir, IndexingContext.INDEX_FILE_PREFIX + ".gz");
+        if (!indexFile.isFile()) {
+            throw new FileNotFoundException(indexFile.getPath());
+        }
+        log.info("Importing {} with {} writer threads", indexFile, writerThreads);
+
+        File targetDir = searchService.newGenerationDir();
+        boolean installed = false;
+        try {
+            IndexDataReadResult result;
+            try (Directory directory = FSDirectory.open(targetDir.toPath());
+                 IndexWriter writer = new IndexWriter(directory, writerConfig())) {
+                result = new Import(indexFile, searchService.getCentralContext(), writer).run();
+                if (result.getTimestamp() != null) {
+                    IndexUtils.updateTimestamp(directory, result.getTimestamp());
+                }
+                writer.commit();
+            }
+
+            File properties = new File(dir, IndexingContext.INDEX_REMOTE_PROPERTIES_FILE);
+            if (properties.isFile()) {
+                Files.copy(properties.toPath(), new File(targetDir, IndexingContext.INDEX_UPDATER_PROPERTIES_FILE).toPath());
+            }
+            searchService.installIndex(targetDir, result.getAllGroups(), result.getRootGroups());
+            installed = true;
+            return result;
+        } finally {
+            if (!installed) {
+                FileUtils.deleteDirectory(targetDir);
+            }
+        }
+    }
+
+    private IndexWriterConfig writerConfig() {
+        IndexWriterConfig config = new IndexWriterConfig(new NexusAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        config.setRAMBufferSizeMB(ramBufferMb);
+        config.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+        config.setMergeScheduler(new ConcurrentMergeScheduler());
+        return config;
+    }
+
+    /**
+     * One run of the pipeline: inflater -> decoder -> writers, connected by bounded queues. The first failure stops
+     * every stage.
+     */
+    private class Import {
+        private final File indexFile;
+        private final IndexingContext context;
+        private final IndexWriter writer;
+
+        private final BlockingQueue<byte[]> inflated = new ArrayBlockingQueue<>(256);
+        private final BlockingQueue<List<Document>> batches = new ArrayBlockingQueue<>(writerThreads * 4);
+        private final List<Document> endOfRecords = new ArrayList<>(0);
+        private final byte[] endOfData = new byte[0];
+
+        private final ExecutorService stages;
+        private final CountDownLatch done = new CountDownLatch(writerThreads + 2);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final LongAdder records = new LongAdder();
+        private final Set<String> allGroups = ConcurrentHashMap.newKeySet();
+        private final Set<String> rootGroups = ConcurrentHashMap.newKeySet();
+        private volatile long timestamp = -1;
+
+        Import(File indexFile, IndexingContext context, IndexWriter writer) {
+            this.indexFile = indexFile;
+            this.context = context;
+            this.writer = writer;
+            AtomicInteger threadCount = new AtomicInteger();
+            this.stages = Executors.newFixedThreadPool(writerThreads + 2, r -> {
+                Thread t = new Thread(r, "index-import-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        IndexDataReadResult run() throws IOException {
+            long start = System.nanoTime();
+            stage(this::inflate);
+            stage(this::decode);
+            for (int i = 0; i < writerThreads; i++) {
+                stage(this::write);
+            }
+
+            try {
+                while (!done.await(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS) && failure.get() == null) {
+                    report("Imported", start);
+                }
+                if (failure.get() == null) {
+                    done.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new InterruptedIOException("Interrupted importing " + indexFile));
+            } finally {
+                stages.shutdownNow();
+            }
+
+            Throwable failed = failure.get();
+            if (failed != null) {
+                throw failed instanceof IOException ? (IOException) failed : new IOException(failed);
+            }
+            report("Import finished:", start);
+
+            IndexDataReadResult result = new IndexDataReadResult();
+            result.setDocumentCount((int) records.sum());
+            result.setTimestamp(timestamp == -1 ? null : new Date(timestamp));
+            result.setAllGroups(allGroups);
+            result.setRootGroups(rootGroups);
+            return result;
+        }
+
+        private void report(String prefix, long start) {
+            long count = records.sum();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info("{} {} records in {} s ({} records/sec)", prefix, count, String.format("%.1f", seconds),
+                    String.format("%.0f", seconds > 0 ? count / seconds : 0));
+        }
+
+        private void stage(Stage stage) {
+            stages.execute(() -> {
+                try {
+                    stage.run();
+                } catch (Throwable t) {
+                    if (failure.compareAndSet(null, t)) {
+                        // unblock the other stages waiting on the queues
+                        stages.shutdownNow();
+                    }
+                    while (done.getCount() > 0) {
+                        done.countDown();
+                    }
+                    return;
+                }
+                done.countDown();
+            });
+        }
+
+        private void inflate() throws IOException, InterruptedException {
+            try (InputStream in = new GZIPInputStream(new FileInputStream(indexFile), CHUNK_SIZE)) {
+                while (true) {
+                    byte[] chunk = new byte[CHUNK_SIZE];
+                    int n = in.readNBytes(chunk, 0, chunk.length);
+                    if (n == 0) {
+                        break;
+                    }
+                    inflated.put(n == chunk.length ? chunk : Arrays.copyOf(chunk, n));
+                }
+            }
+            inflated.put(endOfData);
+        }
+
+        private void decode() throws IOException, InterruptedException {
+            IndexDataDecoder decoder = new IndexDataDecoder(new BufferedInputStream(new QueueInputStream(), CHUNK_SIZE));
+            timestamp = decoder.readHeader();
+            List<Document> batch = new ArrayList<>(BATCH_SIZE);
+            Document doc;
+            while ((doc = decoder.readDocument()) != null) {
+                batch.add(doc);
+                if (batch.size() == BATCH_SIZE) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.put(batch);
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                batches.put(endOfRecords);
+            }
+        }
+
+        private void write() throws IOException, InterruptedException {
+            List<Document> batch;
+            while ((batch = batches.take()) != endOfRecords) {
+                for (Document doc : batch) {
+                    ArtifactInfo ai = IndexUtils.constructArtifactInfo(doc, context);
+                    if (ai != null) {
+                        writer.addDocument(IndexUtils.updateDocument(doc, context, false, ai));
+                        allGroups.add(ai.getGroupId());
+                        rootGroups.add(ai.getRootGroup());
+                    } else {
+                        // descriptor and group records, the context rewrites them when it opens the index
+                        writer.addDocument(doc);
+                    }
+                }
+                records.add(batch.size());
+            }
+        }
+
+        /**
+         * Reads the inflated chunks back as one stream.
+         */
+        private class QueueInputStream extends InputStream {
+            private byte[] chunk = new byte[0];
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (chunk == endOfData) {
+                    return -1;
+                }
+                if (position == chunk.length) {
+                    try {
+                        chunk = inflated.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted importing " + indexFile);
+                    }
+                    position = 0;
+                    if (chunk == endOfData) {
+                        return -1;
+                    }
+                }
+                int n = Math.min(len, chunk.length - position);
+                System.arraycopy(chunk, position, b, off, n);
+                position += n;
+                return n;
+            }
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+}
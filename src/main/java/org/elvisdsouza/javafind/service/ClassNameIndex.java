@@ -0,0 +1,245 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.OfflineSorter;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.BytesRefFSTEnum;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.NoOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.apache.maven.index.context.IndexingContext;
+import org.apache.maven.index.creator.JarFileContentsIndexCreator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class-name lookups over the {@code c} field, which holds one lowercased {@code /package/path/Class} term per
+ * class of a jar. Fully qualified prefixes are a prefix walk of that field's term dictionary. Simple names would
+ * need a suffix scan of it, so each opened index (every generation of central, every mirror) gets its own
+ * simple-name-first FST of its class terms ({@code simplename\0/package/path/simplename}), held by its
+ * {@link IndexGeneration}, and a simple-name prefix is expanded through that into the exact terms to look up.
+ */
+@Slf4j
+@Component
+public class ClassNameIndex implements MeterBinder {
+
+    private static final String FIELD = JarFileContentsIndexCreator.FLD_CLASSNAMES_KW.getKey();
+    private static final byte SEPARATOR = 0;
+    // like BooleanQuery's clause limit; a shorter prefix has to be typed beyond this
+    private static final int MAX_EXPANSIONS = 1024;
+    private static final float EXACT_BOOST = 4f;
+    private static final long SORT_BUFFER_MB = OfflineSorter.MIN_BUFFER_SIZE_MB;
+
+    // of the indexes still open
+    private final AtomicLong ramBytes = new AtomicLong();
+    private final AtomicLong classes = new AtomicLong();
+    private final LongAdder builds = new LongAdder();
+
+    /**
+     * Builds the simple-name FST of an index that is about to be searched. The keys are not in the term
+     * dictionary's order, so they are spilled to a temporary file and sorted offline, in a bounded buffer, then
+     * streamed into the FST builder: no more than the sort buffer and the FST is ever on the heap.
+     */
+    public Names build(IndexingContext context) throws IOException {
+        long start = System.nanoTime();
+        Path tempDir = OfflineSorter.getDefaultTempDir();
+        Path unsorted = Files.createTempFile(tempDir, "classnames", ".keys");
+        Path sorted = Files.createTempFile(tempDir, "classnames", ".sorted");
+        try {
+            long count = writeKeys(context, unsorted);
+            new OfflineSorter(OfflineSorter.DEFAULT_COMPARATOR, OfflineSorter.BufferSize.megabytes(SORT_BUFFER_MB),
+                    tempDir, OfflineSorter.MAX_TEMPFILES).sort(unsorted, sorted);
+
+            Builder<Object> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, NoOutputs.getSingleton());
+            IntsRefBuilder scratch = new IntsRefBuilder();
+            BytesRefBuilder key = new BytesRefBuilder();
+            try (OfflineSorter.ByteSequencesReader keys = new OfflineSorter.ByteSequencesReader(sorted)) {
+                while (keys.read(key)) {
+                    builder.add(Util.toIntsRef(key.get(), scratch), NoOutputs.getSingleton().getNoOutput());
+                }
+            }
+            Names names = new Names(builder.finish(), count);
+            builds.increment();
+            log.info("Indexed {} class names of {} by simple name in {} ms", count, context.getRepositoryId(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return names;
+        } finally {
+            Files.deleteIfExists(unsorted);
+            Files.deleteIfExists(sorted);
+        }
+    }
+
+    /**
+     * Writes {@code simplename\0/package/path/simplename} for every class term, in term order.
+     */
+    private static long writeKeys(IndexingContext context, Path file) throws IOException {
+        long count = 0;
+        IndexSearcher searcher = context.acquireIndexSearcher();
+        try (OfflineSorter.ByteSequencesWriter writer = new OfflineSorter.ByteSequencesWriter(file)) {
+            Terms terms = MultiFields.getTerms(searcher.getIndexReader(), FIELD);
+            if (terms != null) {
+                TermsEnum termsEnum = terms.iterator();
+                BytesRefBuilder key = new BytesRefBuilder();
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    int nameStart = lastSeparator(term) + 1;
+                    key.clear();
+                    key.append(term.bytes, term.offset + nameStart, term.length - nameStart);
+                    key.append(SEPARATOR);
+                    key.append(term);
+                    writer.write(key.get());
+                    count++;
+                }
+            }
+        } finally {
+            context.releaseIndexSearcher(searcher);
+        }
+        return count;
+    }
+
+    static String normalize(String className) {
+        String name = className.trim().toLowerCase(Locale.ROOT);
+        while (name.endsWith("*")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return name;
+    }
+
+    private static int lastSeparator(BytesRef term) {
+        for (int i = term.length - 1; i >= 0; i--) {
+            if (term.bytes[term.offset + i] == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(BytesRef bytes, byte b) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes.bytes[bytes.offset + i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("javafind.search.class-names.size", ramBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Memory held by the simple class name FSTs of the open indexes")
+                .register(registry);
+        Gauge.builder("javafind.search.class-names.classes", classes, AtomicLong::get).register(registry);
+        FunctionCounter.builder("javafind.search.class-names.builds", builds, LongAdder::sum).register(registry);
+    }
+
+    /**
+     * The class names of one index.
+     */
+    public class Names {
+        // null when the index has no class names
+        private final FST<Object> fst;
+        private final long count;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Names(FST<Object> fst, long count) {
+            this.fst = fst;
+            this.count = count;
+            ramBytes.addAndGet(ramBytesUsed());
+            classes.addAndGet(count);
+        }
+
+        /**
+         * Matches the artifacts containing a class named {@code className}: a simple-name prefix
+         * ({@code StringUt}) or, once it contains a dot, a fully qualified prefix
+         * ({@code org.apache.commons.lang3.StringUt}). Exact names score above longer matches.
+         *
+         * @throws IllegalArgumentException if nothing is left to search for
+         */
+        public Query query(String className) throws IOException {
+            String name = normalize(className);
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty class name");
+            }
+            if (name.indexOf('.') >= 0) {
+                Term prefix = new Term(FIELD, "/" + name.replace('.', '/'));
+                return new BooleanQuery.Builder()
+                        .add(new PrefixQuery(prefix), BooleanClause.Occur.MUST)
+                        .add(new BoostQuery(new ConstantScoreQuery(new TermQuery(prefix)), EXACT_BOOST), BooleanClause.Occur.SHOULD)
+                        .build();
+            }
+
+            if (fst == null) {
+                return new MatchNoDocsQuery();
+            }
+            BytesRef prefix = new BytesRef(name);
+            List<BytesRef> matches = new ArrayList<>();
+            List<BytesRef> exact = new ArrayList<>();
+            BytesRefFSTEnum<Object> keys = new BytesRefFSTEnum<>(fst);
+            for (BytesRefFSTEnum.InputOutput<Object> key = keys.seekCeil(prefix);
+                 key != null && StringHelper.startsWith(key.input, prefix) && matches.size() < MAX_EXPANSIONS;
+                 key = keys.next()) {
+                BytesRef input = key.input;
+                int separator = indexOf(input, SEPARATOR);
+                BytesRef term = BytesRef.deepCopyOf(new BytesRef(input.bytes, input.offset + separator + 1,
+                        input.length - separator - 1));
+                matches.add(term);
+                if (separator == prefix.length) {
+                    exact.add(term);
+                }
+            }
+            if (matches.isEmpty()) {
+                return new MatchNoDocsQuery();
+            }
+            BooleanQuery.Builder query = new BooleanQuery.Builder()
+                    .add(new TermsQuery(FIELD, matches), BooleanClause.Occur.MUST);
+            if (!exact.isEmpty()) {
+                query.add(new BoostQuery(new TermsQuery(FIELD, exact), EXACT_BOOST), BooleanClause.Occur.SHOULD);
+            }
+            return query.build();
+        }
+
+        private long ramBytesUsed() {
+            return fst == null ? 0 : fst.ramBytesUsed();
+        }
+
+        /**
+         * Called once the index is closed, for the meters.
+         */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                ramBytes.addAndGet(-ramBytesUsed());
+                classes.addAndGet(-count);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.maven.index.updater.ResourceFetcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the index chunks (.gz files) an update pulls through the wrapped fetcher.
+ */
+public class CountingResourceFetcher implements ResourceFetcher {
+    private final ResourceFetcher delegate;
+    private int chunks;
+
+    public CountingResourceFetcher(ResourceFetcher delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void connect(String id, String url) throws IOException {
+        delegate.connect(id, url);
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+        delegate.disconnect();
+    }
+
+    @Override
+    public InputStream retrieve(String name) throws IOException {
+        InputStream in = delegate.retrieve(name);
+        if (name.endsWith(".gz")) {
+            chunks++;
+        }
+        return in;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+}
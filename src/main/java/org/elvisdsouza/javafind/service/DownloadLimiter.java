@@ -0,0 +1,98 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The download budget. /getFile requests are opened and streamed on this bounded pool rather than on servlet
+ * threads, so a slow upstream or slow clients cannot starve searches of Tomcat threads. At most max-concurrent
+ * downloads make progress at a time, up to queue-size more wait for a thread, and anything beyond that is shed with
+ * a 503 before it costs more than the admission check.
+ */
+@Component
+public class DownloadLimiter implements MeterBinder {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final Semaphore admitted;
+    private final int capacity;
+    private final int retryAfterSeconds;
+    private final LongAdder shed = new LongAdder();
+
+    public DownloadLimiter(@Value("${javafind.download.max-concurrent:64}") int maxConcurrent,
+                           @Value("${javafind.download.queue-size:256}") int queueSize,
+                           @Value("${javafind.download.retry-after-seconds:10}") int retryAfterSeconds) {
+        this.capacity = maxConcurrent + queueSize;
+        this.admitted = new Semaphore(capacity);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        // an admitted download has at most one task queued at a time, so admission keeps this from overflowing
+        executor.setQueueCapacity(capacity);
+        executor.setThreadNamePrefix("download-");
+        executor.setDaemon(true);
+        executor.initialize();
+    }
+
+    /**
+     * Takes a slot in the budget for one download, which must be given back with {@link #release()} once its
+     * body has been written or it failed.
+     *
+     * @throws BusyException when the budget and its queue are full
+     */
+    public void admit() {
+        if (!admitted.tryAcquire()) {
+            shed.increment();
+            throw new BusyException(retryAfterSeconds);
+        }
+    }
+
+    public void release() {
+        admitted.release();
+    }
+
+    /**
+     * Runs the opening and the body transfer of admitted downloads.
+     */
+    public AsyncTaskExecutor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("javafind.download.admitted", this, l -> l.capacity - l.admitted.availablePermits())
+                .description("Downloads running or queued").register(registry);
+        Gauge.builder("javafind.download.queued", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(registry);
+        FunctionCounter.builder("javafind.download.shed", shed, LongAdder::sum)
+                .description("Downloads rejected with 503 because the budget was full").register(registry);
+    }
+
+    public static class BusyException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public BusyException(int retryAfterSeconds) {
+            super("Too many downloads in progress, retry later");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Upstream latency and client transfer rates of /getFile.
+ */
+@Component
+public class DownloadMetrics {
+
+    private final Timer directFirstByte;
+    private final Timer sharedFirstByte;
+    private final DistributionSummary throughput;
+    private final DistributionSummary transferSize;
+    private final AtomicInteger activeTransfers = new AtomicInteger();
+
+    public DownloadMetrics(MeterRegistry registry) {
+        directFirstByte = Timer.builder("javafind.download.upstream.first-byte")
+                .description("Time until upstream answered with headers")
+                .tag("fetch", "direct").publishPercentileHistogram().register(registry);
+        sharedFirstByte = Timer.builder("javafind.download.upstream.first-byte")
+                .description("Time until upstream answered with headers")
+                .tag("fetch", "shared").publishPercentileHistogram().register(registry);
+        throughput = DistributionSummary.builder("javafind.download.throughput")
+                .baseUnit("bytes/second").publishPercentileHistogram().register(registry);
+        transferSize = DistributionSummary.builder("javafind.download.transfer.size")
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("javafind.download.active", activeTransfers, AtomicInteger::get)
+                .description("Response bodies currently being written").register(registry);
+    }
+
+    /**
+     * @param shared whether the fetch feeds the shared, cache-filling transfer rather than a single client
+     */
+    void recordFirstByte(boolean shared, long startNanos) {
+        (shared ? sharedFirstByte : directFirstByte).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void transferStarted() {
+        activeTransfers.incrementAndGet();
+    }
+
+    void transferFinished(long bytes, long startNanos) {
+        activeTransfers.decrementAndGet();
+        long elapsed = System.nanoTime() - startNanos;
+        transferSize.record(bytes);
+        if (elapsed > 0 && bytes > 0) {
+            throughput.record(bytes * 1e9 / elapsed);
+        }
+    }
+}
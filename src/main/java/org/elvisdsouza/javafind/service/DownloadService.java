@@ -0,0 +1,200 @@
+package org.elvisdsouza.javafind.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class DownloadService {
+
+    // a single byte range; multi-range requests are served whole, as RFC 7233 allows
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private final SearchService searchService;
+    private final ArtifactCache artifactCache;
+    private final InFlightDownloads inFlightDownloads;
+    private final DownloadMetrics downloadMetrics;
+    private final DownloadLimiter downloadLimiter;
+    private final UpstreamClient upstreamClient;
+    private final ArtifactPrefetcher artifactPrefetcher;
+    private final int bufferSize;
+
+    public DownloadService(SearchService searchService, ArtifactCache artifactCache,
+                           InFlightDownloads inFlightDownloads, DownloadMetrics downloadMetrics,
+                           DownloadLimiter downloadLimiter, UpstreamClient upstreamClient,
+                           ArtifactPrefetcher artifactPrefetcher,
+                           @Value("${javafind.download.buffer-size:65536}") int bufferSize) {
+        this.searchService = searchService;
+        this.artifactCache = artifactCache;
+        this.inFlightDownloads = inFlightDownloads;
+        this.downloadMetrics = downloadMetrics;
+        this.downloadLimiter = downloadLimiter;
+        this.upstreamClient = upstreamClient;
+        this.artifactPrefetcher = artifactPrefetcher;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * {@link #open} on the download pool, within the {@link DownloadLimiter} budget. The download completing the
+     * future holds a slot until it is passed to {@link #transfer} or {@link #discard}.
+     *
+     * @throws DownloadLimiter.BusyException right away when the budget is exhausted
+     */
+    public CompletableFuture<ArtifactDownload> openAsync(String repository, String relFilepath, String rangeHeader) {
+        downloadLimiter.admit();
+        CompletableFuture<ArtifactDownload> opened = new CompletableFuture<>();
+        try {
+            downloadLimiter.getExecutor().execute(() -> {
+                try {
+                    opened.complete(open(repository, relFilepath, rangeHeader));
+                } catch (Throwable t) {
+                    downloadLimiter.release();
+                    opened.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            downloadLimiter.release();
+            throw e;
+        }
+        return opened;
+    }
+
+    /**
+     * Writes the body of a download from {@link #openAsync} to the client, closes it and frees its slot.
+     */
+    public long transfer(ArtifactDownload download, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long transferred = 0;
+        downloadMetrics.transferStarted();
+        try {
+            transferred = download.transferTo(out, bufferSize);
+            return transferred;
+        } finally {
+            downloadMetrics.transferFinished(transferred, start);
+            downloadLimiter.release();
+        }
+    }
+
+    /**
+     * Closes a download from {@link #openAsync} that is not sent, such as a 304, and frees its slot.
+     */
+    public void discard(ArtifactDownload download) throws IOException {
+        try {
+            download.close();
+        } finally {
+            downloadLimiter.release();
+        }
+    }
+
+    /**
+     * Opens the artifact at the given M2 relative path, from the local cache if possible and upstream otherwise.
+     * A single byte range is honoured if one was asked for. The caller owns the returned download and must close it.
+     *
+     * @param repository the repository the artifact was found in, {@code null} for central. Released artifacts are
+     *                   immutable by coordinates, so the local cache is shared by all repositories.
+     */
+    public ArtifactDownload open(String repository, String relFilepath, String rangeHeader) throws IOException {
+        String relPath = searchService.toCanonicalRelPath(relFilepath);
+        String url = searchService.relPathToUrl(repository, relPath);
+        artifactPrefetcher.recordDownload(relPath);
+
+        ArtifactCache.CachedArtifact cached = artifactCache.lookup(relPath);
+        if (cached != null) {
+            try {
+                return openLocal(cached, rangeHeader);
+            } catch (NoSuchFileException e) {
+                // evicted between lookup and open, fall through to upstream
+            }
+        }
+        if (artifactCache.isEnabled() && parseRange(rangeHeader) == null) {
+            // whole-file misses go through a shared fetch that also fills the cache
+            return inFlightDownloads.join(relPath, url, filenameOf(relPath));
+        }
+        return openUpstream(relPath, url, rangeHeader);
+    }
+
+    private ArtifactDownload openLocal(ArtifactCache.CachedArtifact cached, String rangeHeader) throws IOException {
+        long size = cached.getSize();
+        long start = 0;
+        long end = size - 1;
+        int status = HttpURLConnection.HTTP_OK;
+        String contentRange = null;
+
+        Matcher m = parseRange(rangeHeader);
+        if (m != null) {
+            if (m.group(1).isEmpty()) {
+                start = Math.max(0, size - Long.parseLong(m.group(2)));
+            } else {
+                start = Long.parseLong(m.group(1));
+                if (!m.group(2).isEmpty()) {
+                    end = Math.min(end, Long.parseLong(m.group(2)));
+                }
+            }
+            if (start >= size) {
+                throw new RangeNotSatisfiableException(rangeHeader);
+            }
+            status = HttpURLConnection.HTTP_PARTIAL;
+            contentRange = "bytes " + start + "-" + end + "/" + size;
+        }
+
+        FileChannel channel = FileChannel.open(cached.getFile(), StandardOpenOption.READ);
+        return new ArtifactDownload.Local(filenameOf(cached.getRelPath()), status, end - start + 1, contentRange,
+                cached.getEtag(), channel, start, artifactCache);
+    }
+
+    private ArtifactDownload openUpstream(String relPath, String url, String rangeHeader) throws IOException {
+        Matcher range = parseRange(rangeHeader);
+        long start = System.nanoTime();
+        UpstreamClient.Response response;
+        try {
+            response = upstreamClient.get(url, range == null ? null : "bytes=" + range.group(1) + "-" + range.group(2));
+        } catch (FileNotFoundException e) {
+            throw new FileNotFoundException(relPath);
+        } catch (UpstreamClient.UpstreamException e) {
+            if (e.getStatus() == 416) {
+                throw new RangeNotSatisfiableException(rangeHeader);
+            }
+            throw e;
+        } finally {
+            downloadMetrics.recordFirstByte(false, start);
+        }
+        return new ArtifactDownload.Streamed(filenameOf(relPath), response.getStatus(), response.getContentLength(),
+                response.getContentRange(), response.getBody());
+    }
+
+    private static Matcher parseRange(String rangeHeader) {
+        if (rangeHeader == null) {
+            return null;
+        }
+        Matcher m = SINGLE_RANGE.matcher(rangeHeader.trim());
+        if (!m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+            return null;
+        }
+        if (!m.group(1).isEmpty() && !m.group(2).isEmpty()
+                && Long.parseLong(m.group(1)) > Long.parseLong(m.group(2))) {
+            return null;
+        }
+        return m;
+    }
+
+    static String filenameOf(String relFilepath) {
+        String name = relFilepath.substring(relFilepath.lastIndexOf('/') + 1);
+        return name.isEmpty() ? "artifact.jar" : name;
+    }
+
+    public static class RangeNotSatisfiableException extends IOException {
+        public RangeNotSatisfiableException(String range) {
+            super("Range not satisfiable: " + range);
+        }
+    }
+}
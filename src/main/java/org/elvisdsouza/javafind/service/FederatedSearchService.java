@@ -0,0 +1,234 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches central and the configured mirror indexes in parallel and merges their GA groups. Central is searched on
+ * the request thread, the mirrors on a shared pool. Each mirror has its own deadline; one that misses it, fails, or
+ * could not be opened at all is left out of the result and named in {@link SearchResult#getUnavailableRepositories()}
+ * rather than holding up the request.
+ * <p>
+ * Scores of different indexes are not comparable, so the merged list takes the repositories' rankings in turns,
+ * central first, and a GA found in several repositories is listed once, from the first of them. The merged total
+ * is the sum of the repositories' totals, so it is an upper bound: a GA in several repositories counts in each.
+ * <p>
+ * Merged results are cached like central's own, as long as no repository was missing from them for a reason that may
+ * pass, such as a timeout.
+ */
+@Slf4j
+@Service
+public class FederatedSearchService {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final SearchService searchService;
+    private final SearchResultCache resultCache;
+    private final Duration defaultTimeout;
+    private final List<FederationProperties.Mirror> mirrors;
+    // replaced as a whole by openMirrors()
+    private volatile List<Repository> repositories = Collections.emptyList();
+    private volatile List<String> unopened = Collections.emptyList();
+    private final ExecutorService executor;
+    private final MeterRegistry registry;
+
+    public FederatedSearchService(SearchService searchService, SearchResultCache resultCache,
+                                  FederationProperties properties, MeterRegistry registry) {
+        this.searchService = searchService;
+        this.resultCache = resultCache;
+        this.defaultTimeout = properties.getTimeout();
+        this.registry = registry;
+        this.mirrors = new ArrayList<>(properties.getMirrors());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = ExecutorServiceMetrics.monitor(registry, Executors.newFixedThreadPool(properties.getThreads(), r -> {
+            Thread t = new Thread(r, "federated-search-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }), "javafind.search.federation");
+    }
+
+    public boolean isEnabled() {
+        return !mirrors.isEmpty();
+    }
+
+    /**
+     * Opens the configured mirror indexes, once central's is open. A mirror whose index is missing or broken is
+     * searched without, and reported as unavailable.
+     */
+    public synchronized void openMirrors() {
+        if (!repositories.isEmpty() || !unopened.isEmpty()) {
+            return;
+        }
+        List<Repository> opened = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        for (FederationProperties.Mirror mirror : mirrors) {
+            if (mirror.getIndexDir() == null || !mirror.getIndexDir().isDirectory()) {
+                log.warn("Index of repository {} not found at {}, searching without it", mirror.getId(),
+                        mirror.getIndexDir());
+                failed.add(mirror.getId());
+                continue;
+            }
+            try {
+                IndexGeneration index = searchService.openMirror(mirror.getId(), mirror.getUrl(), mirror.getIndexDir());
+                opened.add(new Repository(mirror.getId(), index,
+                        mirror.getTimeout() != null ? mirror.getTimeout() : defaultTimeout));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot open index of repository {}, searching without it", mirror.getId(), e);
+                failed.add(mirror.getId());
+            }
+        }
+        repositories = opened;
+        unopened = failed;
+    }
+
+    /**
+     * What /searcha serves, cached: the merged result of all repositories when mirrors are configured, central's
+     * alone otherwise.
+     *
+     * @throws IllegalArgumentException for a cursor when mirrors are configured, their results are paged by number
+     */
+    public SearchResult search(SearchMode mode, String input, int pageNumber, String afterCursor) throws IOException {
+        if (!isEnabled()) {
+            return mode == SearchMode.CLASS ? searchService.searchClassName(input, pageNumber, afterCursor)
+                    : searchService.searchUserInput(input, pageNumber, afterCursor);
+        }
+        // a cursor cannot span repositories; ignoring it would silently serve page 1 again
+        if (afterCursor != null && !afterCursor.isEmpty()) {
+            throw new IllegalArgumentException("Search cursors are not supported across mirrors, page by number instead");
+        }
+        List<String> unopened = this.unopened;
+        return resultCache.get(mode, input, pageNumber, null, searchService.getCentralContext().getTimestamp(),
+                () -> search(mode, input, pageNumber), result -> unopened.containsAll(result.getUnavailableRepositories()));
+    }
+
+    /**
+     * One uncached search of all repositories.
+     */
+    public SearchResult search(SearchMode mode, String input, int pageNumber) throws IOException {
+        int page = Math.max(pageNumber, 1);
+        // every repository has to rank as deep as the merged page reaches
+        int window = page * PAGE_SIZE;
+        long start = System.nanoTime();
+        List<Repository> repositories = this.repositories;
+
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (Repository repository : repositories) {
+            futures.add(executor.submit(() -> searchService.search(repository.index, mode, input, window, 1, null)));
+        }
+
+        List<SearchResult> answered = new ArrayList<>();
+        List<String> unavailable = new ArrayList<>(unopened);
+        // central on the caller's thread: mirrors that stall can fill the pool, but never hold up central
+        try {
+            answered.add(searchCentral(mode, input, window));
+        } catch (IllegalArgumentException | SearchService.IndexNotReadyException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Search of central failed", e);
+            unavailable(null, "error", unavailable);
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Repository repository = repositories.get(i);
+            try {
+                long remaining = repository.timeout.toNanos() - (System.nanoTime() - start);
+                answered.add(futures.get(i).get(Math.max(remaining, 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // never interrupted: an interrupt during a read closes the index's NIO channels for everyone
+                futures.get(i).cancel(false);
+                unavailable(repository.id, "timeout", unavailable);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IllegalArgumentException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                log.warn("Search of {} failed", repository.id, e.getCause());
+                unavailable(repository.id, "error", unavailable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during a federated search", e);
+            }
+        }
+        return merge(answered, page, unavailable);
+    }
+
+    private SearchResult searchCentral(SearchMode mode, String input, int window) throws IOException {
+        IndexGeneration generation = searchService.acquireGeneration();
+        try {
+            return searchService.search(generation, mode, input, window, 1, null);
+        } finally {
+            searchService.releaseGeneration(generation);
+        }
+    }
+
+    private void unavailable(String id, String reason, List<String> unavailable) {
+        String repository = id == null ? SearchService.CENTRAL_REPOSITORY : id;
+        unavailable.add(repository);
+        Counter.builder("javafind.search.federation.unavailable")
+                .tag("repository", repository).tag("reason", reason).register(registry).increment();
+    }
+
+    /**
+     * Only the GAs within the ranked window are known, so those found in several repositories cannot be taken off
+     * the total; it is left as the sum of the repositories' totals, an upper bound.
+     */
+    static SearchResult merge(List<SearchResult> results, int page, List<String> unavailable) {
+        List<JavaFindArtifact> merged = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int total = 0;
+        int longest = 0;
+        for (SearchResult result : results) {
+            total += result.getTotalResultCount();
+            longest = Math.max(longest, result.getArtifacts().size());
+        }
+        for (int rank = 0; rank < longest; rank++) {
+            for (SearchResult result : results) {
+                if (rank < result.getArtifacts().size()) {
+                    JavaFindArtifact artifact = result.getArtifacts().get(rank);
+                    if (seen.add(artifact.getGroupId() + ":" + artifact.getArtifactId())) {
+                        merged.add(artifact);
+                    }
+                }
+            }
+        }
+        int from = Math.min((page - 1) * PAGE_SIZE, merged.size());
+        int to = Math.min(from + PAGE_SIZE, merged.size());
+        return new SearchResult(new ArrayList<>(merged.subList(from, to)), total, null, unavailable);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Repository {
+        final String id;
+        final IndexGeneration index;
+        final Duration timeout;
+
+        Repository(String id, IndexGeneration index, Duration timeout) {
+            this.id = id;
+            this.index = index;
+            this.timeout = timeout;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.elvisdsouza.javafind.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The repositories searched together with central, e.g.
+ * <pre>
+ * javafind.federation.mirrors[0].id=internal
+ * javafind.federation.mirrors[0].url=https://repo.example.com/maven2
+ * javafind.federation.mirrors[0].index-dir=/data/internal-index
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "javafind.federation")
+public class FederationProperties {
+
+    private List<Mirror> mirrors = new ArrayList<>();
+    // how long a search waits for a mirror that has no timeout of its own
+    private Duration timeout = Duration.ofSeconds(2);
+    // for the mirrors only, central is searched on the request thread
+    private int threads = 8;
+
+    @Data
+    public static class Mirror {
+        private String id;
+        private String url;
+        private File indexDir;
+        private Duration timeout;
+    }
+}
@@ -0,0 +1,302 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent downloads of the same artifact into a single upstream fetch. The fetch runs on its own thread
+ * and spools into an {@link ArtifactCache} temp file; every requester, including the one that started it, streams by
+ * tailing that file, so a slow client never holds up the others or the fetch itself.
+ */
+@Component
+public class InFlightDownloads implements MeterBinder {
+
+    private final ArtifactCache artifactCache;
+    private final DownloadMetrics downloadMetrics;
+    private final UpstreamClient upstreamClient;
+    private final int bufferSize;
+    private final ExecutorService fetchExecutor;
+    private final ConcurrentMap<String, Transfer> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder upstreamFetches = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public InFlightDownloads(ArtifactCache artifactCache, DownloadMetrics downloadMetrics, UpstreamClient upstreamClient,
+                             @Value("${javafind.download.buffer-size:65536}") int bufferSize,
+                             @Value("${javafind.download.fetch-threads:16}") int fetchThreads) {
+        this.artifactCache = artifactCache;
+        this.downloadMetrics = downloadMetrics;
+        this.upstreamClient = upstreamClient;
+        this.bufferSize = bufferSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchExecutor = Executors.newFixedThreadPool(fetchThreads, r -> {
+            Thread t = new Thread(r, "artifact-fetch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Attaches to the in-flight fetch of {@code relPath}, starting one from {@code url} if there is none, and waits
+     * until upstream has answered.
+     */
+    public ArtifactDownload join(String relPath, String url, String filename) throws IOException {
+        Transfer created = null;
+        Transfer transfer = inFlight.get(relPath);
+        if (transfer == null) {
+            created = new Transfer(relPath, url);
+            transfer = inFlight.putIfAbsent(relPath, created);
+            if (transfer == null) {
+                transfer = created;
+                upstreamFetches.increment();
+                fetchExecutor.execute(created);
+            } else {
+                created = null;
+            }
+        }
+        if (created == null) {
+            coalesced.increment();
+            // a prefetch someone is waiting for now
+            transfer.unthrottle();
+        }
+
+        long contentLength = transfer.awaitStarted();
+        return new ArtifactDownload.Streamed(filename, HttpURLConnection.HTTP_OK, contentLength, null,
+                transfer.openReader());
+    }
+
+    /**
+     * Fetches {@code relPath} into the cache on the calling thread with no requester attached, paced by
+     * {@code throttle} until a requester joins. Does nothing if it is already being fetched.
+     *
+     * @return whether this call fetched it
+     */
+    public boolean prefetch(String relPath, String url, Throttle throttle) throws IOException {
+        Transfer created = new Transfer(relPath, url);
+        created.throttle = throttle;
+        if (inFlight.putIfAbsent(relPath, created) != null) {
+            return false;
+        }
+        upstreamFetches.increment();
+        created.run();
+        // rethrow what failed it, if anything
+        created.awaitStarted();
+        created.awaitAvailable(Long.MAX_VALUE);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("javafind.download.upstream.fetches", upstreamFetches, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("javafind.download.coalesced", coalesced, LongAdder::sum)
+                .description("Downloads served by attaching to another request's upstream fetch")
+                .register(registry);
+        Gauge.builder("javafind.download.in-flight", inFlight, ConcurrentMap::size).register(registry);
+    }
+
+    /**
+     * Paces a prefetch, called with the size of every chunk read from upstream.
+     */
+    public interface Throttle {
+        void acquire(int bytes) throws IOException;
+    }
+
+    private class Transfer implements Runnable {
+        private final String relPath;
+        private final String url;
+        // set for prefetches until a requester joins
+        private volatile Throttle throttle;
+        // upstream content length, or the reason the fetch could not start
+        private final CompletableFuture<Long> started = new CompletableFuture<>();
+
+        // guarded by this
+        private ArtifactCache.Writer writer;
+        private long written;
+        private boolean finished;
+        private IOException failure;
+        private Path committedFile;
+
+        Transfer(String relPath, String url) {
+            this.relPath = relPath;
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            try {
+                fetch();
+            } catch (IOException | RuntimeException e) {
+                IOException failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                started.completeExceptionally(failure);
+                synchronized (this) {
+                    this.failure = failure;
+                    finished = true;
+                    notifyAll();
+                }
+                if (writer != null) {
+                    writer.abort();
+                }
+            } finally {
+                inFlight.remove(relPath, this);
+            }
+        }
+
+        private void fetch() throws IOException {
+            long start = System.nanoTime();
+            UpstreamClient.Response response;
+            try {
+                response = upstreamClient.get(url, null);
+            } catch (FileNotFoundException e) {
+                throw new FileNotFoundException(relPath);
+            } finally {
+                downloadMetrics.recordFirstByte(true, start);
+            }
+            long contentLength = response.getContentLength();
+            try {
+                synchronized (this) {
+                    writer = artifactCache.newWriter(relPath);
+                }
+            } catch (IOException | RuntimeException e) {
+                response.getBody().close();
+                throw e;
+            }
+            started.complete(contentLength);
+
+            byte[] buffer = new byte[bufferSize];
+            try (InputStream in = response.getBody()) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    writer.write(buffer, 0, n);
+                    synchronized (this) {
+                        written += n;
+                        notifyAll();
+                    }
+                    Throttle paced = throttle;
+                    if (paced != null) {
+                        paced.acquire(n);
+                    }
+                }
+            }
+            if (contentLength >= 0 && written != contentLength) {
+                throw new IOException("Upstream closed " + relPath + " after " + written + " of " + contentLength + " bytes");
+            }
+
+            // the move and the new path are published together: a requester joining in between would open the
+            // spool file after it is gone
+            synchronized (this) {
+                committedFile = writer.commit().getFile();
+                finished = true;
+                notifyAll();
+            }
+        }
+
+        void unthrottle() {
+            throttle = null;
+        }
+
+        long awaitStarted() throws IOException {
+            try {
+                return started.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for " + relPath);
+            } catch (ExecutionException e) {
+                throw (IOException) e.getCause();
+            }
+        }
+
+        synchronized InputStream openReader() throws IOException {
+            // once committed the spool file has been moved into the cache under its final name
+            Path file = committedFile != null ? committedFile : writer.getTmpFile();
+            return new TailingInputStream(this, FileChannel.open(file, StandardOpenOption.READ));
+        }
+
+        /**
+         * Blocks until more than {@code position} bytes are available; returns the available byte count, or -1
+         * once the transfer completed and everything has been read.
+         */
+        synchronized long awaitAvailable(long position) throws IOException {
+            while (written <= position && !finished) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for " + relPath);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Upstream fetch of " + relPath + " failed", failure);
+            }
+            return written > position ? written : -1;
+        }
+    }
+
+    private static class TailingInputStream extends InputStream {
+        private final Transfer transfer;
+        private final FileChannel channel;
+        private long position;
+
+        TailingInputStream(Transfer transfer, FileChannel channel) {
+            this.transfer = transfer;
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long available = transfer.awaitAvailable(position);
+            if (available == -1) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, available - position);
+            int n = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
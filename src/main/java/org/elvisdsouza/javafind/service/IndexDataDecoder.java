@@ -0,0 +1,122 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.maven.index.ArtifactInfo;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+
+/**
+ * Decodes the records of an already inflated index transfer file, the same format {@code IndexDataReader} reads.
+ * That reader always inflates on the calling thread; this one takes plain bytes so inflation can run elsewhere.
+ */
+class IndexDataDecoder {
+
+    private static final int VERSION = 1;
+    private static final int F_INDEXED = 1;
+    private static final int F_TOKENIZED = 2;
+    private static final int F_STORED = 4;
+
+    private final DataInputStream in;
+    private byte[] bytes = new byte[256];
+    private char[] chars = new char[256];
+
+    IndexDataDecoder(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * Reads the header and returns the index timestamp, or -1 if the index has none.
+     */
+    long readHeader() throws IOException {
+        if (in.readByte() != VERSION) {
+            throw new IOException("Provided input contains unexpected data (0x01 expected as 1st byte)!");
+        }
+        return in.readLong();
+    }
+
+    /**
+     * Returns the next record, or {@code null} at the end of the input.
+     */
+    @SuppressWarnings("deprecation")
+    Document readDocument() throws IOException {
+        int fieldCount;
+        try {
+            fieldCount = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        Document doc = new Document();
+        for (int i = 0; i < fieldCount; i++) {
+            int flags = in.read();
+            Field.Index index = (flags & F_INDEXED) == 0 ? Field.Index.NO
+                    : (flags & F_TOKENIZED) != 0 ? Field.Index.ANALYZED : Field.Index.NOT_ANALYZED;
+            Field.Store store = (flags & F_STORED) != 0 ? Field.Store.YES : Field.Store.NO;
+            String name = in.readUTF();
+            doc.add(new Field(name, readValue(), store, index));
+        }
+
+        // older writers left the extension off UINFO, it is recovered from INFO (MINDEXER-41)
+        Field uinfo = (Field) doc.getField(ArtifactInfo.UINFO);
+        String info = doc.get(ArtifactInfo.INFO);
+        if (uinfo != null && info != null && !info.isEmpty()) {
+            String[] splitInfo = ArtifactInfo.FS_PATTERN.split(info);
+            if (splitInfo.length > 6 && uinfo.stringValue().endsWith(ArtifactInfo.FS + ArtifactInfo.NA)) {
+                uinfo.setStringValue(uinfo.stringValue() + ArtifactInfo.FS + ArtifactInfo.nvl(splitInfo[6]));
+            }
+        }
+        return doc;
+    }
+
+    // modified UTF-8 behind an int length, as DataOutput.writeUTF would write it without the 64k limit
+    private String readValue() throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative field length " + length + ", the index data is corrupt");
+        }
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+            chars = new char[bytes.length];
+        }
+        in.readFully(bytes, 0, length);
+
+        int count = 0;
+        int charCount = 0;
+        while (count < length) {
+            int c = bytes[count] & 0xff;
+            if (c < 0x80) {
+                chars[charCount++] = (char) c;
+                count++;
+            } else if ((c >> 5) == 0x6) {
+                if (count + 2 > length) {
+                    throw new UTFDataFormatException("malformed input: partial character at end");
+                }
+                chars[charCount++] = (char) (((c & 0x1f) << 6) | (continuation(count + 1)));
+                count += 2;
+            } else if ((c >> 4) == 0xe) {
+                if (count + 3 > length) {
+                    throw new UTFDataFormatException("malformed input: partial character at end");
+                }
+                chars[charCount++] = (char) (((c & 0x0f) << 12) | (continuation(count + 1) << 6)
+                        | continuation(count + 2));
+                count += 3;
+            } else {
+                throw new UTFDataFormatException("malformed input around byte " + count);
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
+
+    private int continuation(int position) throws UTFDataFormatException {
+        int b = bytes[position];
+        if ((b & 0xc0) != 0x80) {
+            throw new UTFDataFormatException("malformed input around byte " + position);
+        }
+        return b & 0x3f;
+    }
+}
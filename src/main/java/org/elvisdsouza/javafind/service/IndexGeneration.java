@@ -0,0 +1,77 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.index.context.IndexingContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One opened generation of the central index, or a mirror's index. Searches hold a reference for their duration, so
+ * a generation that has been swapped out is only closed (and its directory removed) once the last search on it has
+ * finished.
+ */
+public class IndexGeneration {
+    private final long number;
+    private final IndexingContext context;
+    private final File directory;
+    private final ClassNameIndex.Names classNames;
+    // one reference belongs to the service for as long as this is the current generation
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private volatile boolean deleteOnClose;
+
+    public IndexGeneration(long number, IndexingContext context, File directory, ClassNameIndex.Names classNames) {
+        this.number = number;
+        this.context = context;
+        this.directory = directory;
+        this.classNames = classNames;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public IndexingContext getContext() {
+        return context;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Built from this index, so that simple names expand to the classes it actually has.
+     */
+    public ClassNameIndex.Names getClassNames() {
+        return classNames;
+    }
+
+    boolean tryIncRef() {
+        int count;
+        while ((count = refCount.get()) > 0) {
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void decRef() throws IOException {
+        if (refCount.decrementAndGet() == 0) {
+            context.close(false);
+            classNames.release();
+            if (deleteOnClose) {
+                FileUtils.deleteDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Drops the service's own reference; the generation closes once in-flight searches release theirs.
+     */
+    void retire(boolean deleteFiles) throws IOException {
+        this.deleteOnClose = deleteFiles;
+        decRef();
+    }
+}
@@ -0,0 +1,16 @@
+package org.elvisdsouza.javafind.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Published after a new index generation has been swapped in and is serving searches.
+ */
+@Getter
+@AllArgsConstructor
+public class IndexGenerationChangedEvent {
+    private final long generation;
+    private final Date timestamp;
+}
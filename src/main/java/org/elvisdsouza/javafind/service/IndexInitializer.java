@@ -0,0 +1,121 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.elvisdsouza.javafind.domain.Readiness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the index up in the background so that the application starts serving (health, downloads, /check)
+ * immediately: opens the index and warms its filters, runs a configured bulk import, opens the mirror indexes, and
+ * replays the configured warmup queries and the most popular ones (see {@link QueryPopularity}) through the
+ * searcher and result cache. Progress is reported by {@link #readiness()}.
+ */
+@Slf4j
+@Component
+public class IndexInitializer {
+
+    public enum Phase {
+        STARTING, OPENING_INDEX, IMPORTING, OPENING_MIRRORS, WARMING, READY, FAILED
+    }
+
+    private final SearchService searchService;
+    private final FederatedSearchService federatedSearchService;
+    private final ObjectProvider<BulkIndexImporter> bulkIndexImporter;
+    private final QueryPopularity queryPopularity;
+    // the configured ones, then the most popular
+    private volatile List<String> warmupQueries;
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private volatile Phase phase = Phase.STARTING;
+    private volatile long readyNanos;
+    private volatile String error;
+
+    // registers its meters itself: as a MeterBinder its dependency on SearchService would form a cycle with the registry
+    public IndexInitializer(SearchService searchService, FederatedSearchService federatedSearchService,
+                            ObjectProvider<BulkIndexImporter> bulkIndexImporter, QueryPopularity queryPopularity,
+                            MeterRegistry registry,
+                            @Value("${javafind.index.warmup-queries:}") List<String> warmupQueries) {
+        this.searchService = searchService;
+        this.federatedSearchService = federatedSearchService;
+        this.bulkIndexImporter = bulkIndexImporter;
+        this.queryPopularity = queryPopularity;
+        this.warmupQueries = warmupQueries.stream().map(String::trim).filter(q -> !q.isEmpty())
+                .collect(Collectors.toList());
+        Gauge.builder("javafind.index.ready", this, i -> i.phase == Phase.READY ? 1 : 0).register(registry);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::initialize, "index-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void initialize() {
+        try {
+            phase = Phase.OPENING_INDEX;
+            searchService.initialize();
+            if (!searchService.isInitialized()) {
+                // shut down meanwhile
+                return;
+            }
+            BulkIndexImporter importer = bulkIndexImporter.getIfAvailable();
+            if (importer != null) {
+                phase = Phase.IMPORTING;
+                importer.importIfEmpty();
+            }
+            phase = Phase.OPENING_MIRRORS;
+            federatedSearchService.openMirrors();
+            phase = Phase.WARMING;
+            warm();
+            readyNanos = System.nanoTime();
+            phase = Phase.READY;
+            log.info("Ready to search after {} ms", (readyNanos - startNanos) / 1_000_000);
+        } catch (Exception e) {
+            error = e.toString();
+            phase = Phase.FAILED;
+            log.error("Index initialization failed", e);
+        }
+    }
+
+    private void warm() {
+        Set<String> queries = new LinkedHashSet<>(warmupQueries);
+        queries.addAll(queryPopularity.replayQueries());
+        warmupQueries = new ArrayList<>(queries);
+        for (String query : warmupQueries) {
+            try {
+                // the way /searcha runs it, so that its cache is the one warmed
+                federatedSearchService.search(SearchMode.ARTIFACT, query, 1, null);
+            } catch (Exception e) {
+                log.warn("Warmup query '{}' failed", query, e);
+            }
+            warmed.incrementAndGet();
+        }
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    public Readiness readiness() {
+        Phase current = phase;
+        long until = current == Phase.READY ? readyNanos : System.nanoTime();
+        return new Readiness(current == Phase.READY, current.name().toLowerCase(Locale.ROOT).replace('_', '-'),
+                warmed.get(), warmupQueries.size(), (until - startNanos) / 1_000_000,
+                searchService.getCurrentGeneration(), error);
+    }
+}
@@ -0,0 +1,58 @@
+package org.elvisdsouza.javafind.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which index creators, and so which fields, the central index is built with. A profile only applies to documents
+ * written after it is selected; switch it together with a full re-import.
+ */
+public enum IndexProfile {
+    /** groupId/artifactId/version/classifier, enough for artifact search and downloads */
+    GA_ONLY("ga-only", "min"),
+    /** plus the class names of main jars, for class-name search */
+    GA_CLASSES("ga+classes", "min", "jarContent"),
+    /** plus maven plugin metadata, which nothing here queries */
+    FULL("full", "min", "jarContent", "maven-plugin");
+
+    private final String id;
+    private final List<String> creators;
+
+    IndexProfile(String id, String... creators) {
+        this.id = id;
+        this.creators = Collections.unmodifiableList(Arrays.asList(creators));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * The role hints of the {@link org.apache.maven.index.context.IndexCreator}s to look up.
+     */
+    public List<String> getCreators() {
+        return creators;
+    }
+
+    public boolean hasClassNames() {
+        return creators.contains("jarContent");
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown profile
+     */
+    public static IndexProfile parse(String profile) {
+        for (IndexProfile candidate : values()) {
+            if (candidate.id.equalsIgnoreCase(profile.trim())) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown index profile '" + profile + "', expected ga-only, ga+classes or full");
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
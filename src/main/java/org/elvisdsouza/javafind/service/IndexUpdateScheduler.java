@@ -0,0 +1,74 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.index.updater.IndexUpdateResult;
+import org.apache.maven.index.updater.ResourceFetcher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically pulls incremental index updates from the remote repository in the background.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "javafind.index.update.enabled", havingValue = "true")
+public class IndexUpdateScheduler {
+
+    private final SearchService searchService;
+    private final Timer successfulUpdates;
+    private final Timer failedUpdates;
+    private final DistributionSummary chunks;
+    private volatile long lastSuccessMillis = -1;
+
+    public IndexUpdateScheduler(SearchService searchService, MeterRegistry registry) {
+        this.searchService = searchService;
+        this.successfulUpdates = Timer.builder("javafind.index.update.duration")
+                .tag("outcome", "success").register(registry);
+        this.failedUpdates = Timer.builder("javafind.index.update.duration")
+                .tag("outcome", "failure").register(registry);
+        this.chunks = DistributionSummary.builder("javafind.index.update.chunks")
+                .description("Index chunks applied per update").register(registry);
+        Gauge.builder("javafind.index.update.since-last-success", this, IndexUpdateScheduler::secondsSinceLastSuccess)
+                .baseUnit("seconds").register(registry);
+        Gauge.builder("javafind.index.generation", searchService, s -> s.getCurrentGeneration())
+                .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${javafind.index.update.initial-delay-ms:60000}",
+            fixedDelayString = "${javafind.index.update.interval-ms:3600000}")
+    public void scheduledUpdate() {
+        if (!searchService.isInitialized()) {
+            log.info("Index still initializing, skipping this update");
+            return;
+        }
+        runUpdate(searchService.newRemoteFetcher());
+    }
+
+    public IndexUpdateResult runUpdate(ResourceFetcher resourceFetcher) {
+        CountingResourceFetcher fetcher = new CountingResourceFetcher(resourceFetcher);
+        long start = System.nanoTime();
+        try {
+            IndexUpdateResult result = searchService.updateIndex(fetcher);
+            successfulUpdates.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            chunks.record(fetcher.getChunks());
+            lastSuccessMillis = System.currentTimeMillis();
+            return result;
+        } catch (Exception e) {
+            failedUpdates.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.error("Index update failed", e);
+            return null;
+        }
+    }
+
+    private double secondsSinceLastSuccess() {
+        long last = lastSuccessMillis;
+        return last < 0 ? Double.NaN : (System.currentTimeMillis() - last) / 1000.0;
+    }
+}
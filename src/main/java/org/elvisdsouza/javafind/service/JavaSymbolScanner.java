@@ -0,0 +1,171 @@
+package org.elvisdsouza.javafind.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the types and methods a Java source file declares, without a full parser. Comments and literals are blanked
+ * out, then braces are tracked: the text before a brace at type level says whether it opens a nested type, a method
+ * or something else, and method bodies are skipped whole. Local and anonymous classes are not reported. Overloads
+ * are reported once.
+ */
+final class JavaSymbolScanner {
+
+    static final String CLASS = "class";
+    static final String METHOD = "method";
+
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final Pattern ANNOTATION = Pattern.compile("@(?!interface\\b)[\\w$.]+(\\s*\\([^)]*\\))?");
+    private static final Pattern TYPE = Pattern.compile(
+            "(?<![\\w$.])(?:class|interface|enum|record|@interface)\\s+([A-Za-z_$][\\w$]*)");
+    // [type] name(params) [throws ...]; a name without a type before it is only a constructor
+    private static final Pattern METHOD_HEADER = Pattern.compile(
+            "^(?:[\\w$<>\\[\\],.?\\s]*[\\w$>\\]]\\s+)?([A-Za-z_$][\\w$]*)\\s*\\([^()]*\\)\\s*(?:throws\\s+[\\w$.,\\s]+)?"
+                    + "(?:default\\s+.*)?$", Pattern.DOTALL);
+    private static final Pattern MODIFIERS = Pattern.compile(
+            "^(?:(?:public|protected|private|static|final|abstract|synchronized|native|strictfp|default|transient"
+                    + "|volatile|sealed|non-sealed)\\s+)*");
+
+    private JavaSymbolScanner() {
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Symbol {
+        private String kind;
+        // fully qualified, nested types joined with '.'
+        private String className;
+        // the simple name of the type or method
+        private String name;
+    }
+
+    static List<Symbol> scan(String source) {
+        String code = blankCommentsAndLiterals(source);
+        Matcher pkg = PACKAGE.matcher(code);
+        String prefix = pkg.find() ? pkg.group(1) + "." : "";
+
+        Set<Symbol> symbols = new LinkedHashSet<>();
+        // the qualified names of the enclosing types, innermost first
+        Deque<String> types = new ArrayDeque<>();
+        int headerStart = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '{') {
+                String header = header(code, headerStart, i);
+                Matcher type = TYPE.matcher(header);
+                if (type.find()) {
+                    String className = (types.isEmpty() ? prefix : types.peek() + ".") + type.group(1);
+                    symbols.add(new Symbol(CLASS, className, type.group(1)));
+                    types.push(className);
+                } else {
+                    if (!types.isEmpty()) {
+                        addMethod(symbols, types.peek(), header);
+                    }
+                    // nothing declared in a method body, initializer or field value is reported
+                    i = endOfBlock(code, i);
+                }
+            } else if (c == '}') {
+                types.poll();
+            } else if (c == ';') {
+                if (!types.isEmpty()) {
+                    // abstract, interface and native methods
+                    addMethod(symbols, types.peek(), header(code, headerStart, i));
+                }
+            } else {
+                continue;
+            }
+            headerStart = i + 1;
+        }
+        return new ArrayList<>(symbols);
+    }
+
+    private static int endOfBlock(String code, int open) {
+        int depth = 0;
+        for (int i = open; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return code.length() - 1;
+    }
+
+    private static String header(String code, int start, int end) {
+        String header = ANNOTATION.matcher(code.substring(start, end)).replaceAll(" ").trim();
+        return MODIFIERS.matcher(header).replaceFirst("");
+    }
+
+    private static void addMethod(Set<Symbol> symbols, String className, String header) {
+        if (header.indexOf('=') >= 0 || header.startsWith("new ")) {
+            return;
+        }
+        Matcher method = METHOD_HEADER.matcher(header);
+        if (!method.matches()) {
+            return;
+        }
+        String name = method.group(1);
+        boolean hasType = method.start(1) > 0;
+        String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
+        if (hasType || name.equals(simpleClassName)) {
+            symbols.add(new Symbol(METHOD, className, name));
+        }
+    }
+
+    /**
+     * Replaces comments and string, text block and char literals by spaces, keeping offsets and line breaks.
+     */
+    static String blankCommentsAndLiterals(String source) {
+        char[] out = source.toCharArray();
+        int i = 0;
+        int n = out.length;
+        while (i < n) {
+            char c = out[i];
+            if (c == '/' && i + 1 < n && out[i + 1] == '/') {
+                while (i < n && out[i] != '\n') {
+                    out[i++] = ' ';
+                }
+            } else if (c == '/' && i + 1 < n && out[i + 1] == '*') {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                blank(out, i, end);
+                i = end;
+            } else if (c == '"' && source.startsWith("\"\"\"", i)) {
+                int end = source.indexOf("\"\"\"", i + 3);
+                end = end < 0 ? n : end + 3;
+                blank(out, i, end);
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < n && out[end] != c && out[end] != '\n') {
+                    end += out[end] == '\\' ? 2 : 1;
+                }
+                end = Math.min(n, end + 1);
+                // keep the quotes, so an empty literal still separates tokens
+                blank(out, i + 1, end - 1);
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return new String(out);
+    }
+
+    private static void blank(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chars[i] != '\n') {
+                chars[i] = ' ';
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ranks the GA groups of one query on several threads. The index is cut into partitions of roughly equal doc count,
+ * as ranges within segments so that a large segment is split too; each partition is scored into its own
+ * {@link TopGroupsCollector} with the query's one shared weight, and the partitions' top groups are merged. A group
+ * in the overall top n is in the top n of the partition holding its best hit, so the merge loses nothing.
+ * <p>
+ * With no threads configured, or for an index too small to be worth splitting, the search runs on the caller's
+ * thread as before.
+ */
+@Component
+public class ParallelGroupSearch implements MeterBinder {
+
+    private final int partitions;
+    private final int minPartitionDocs;
+    private final ExecutorService executor;
+
+    public ParallelGroupSearch(@Value("${javafind.search.parallel.threads:0}") int threads,
+                               @Value("${javafind.search.parallel.partitions:0}") int partitions,
+                               @Value("${javafind.search.parallel.min-partition-docs:100000}") int minPartitionDocs) {
+        this.partitions = partitions > 0 ? partitions : threads;
+        this.minPartitionDocs = Math.max(minPartitionDocs, 1);
+        if (threads > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "group-search-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public TopGroupsCollector topGroups(IndexSearcher searcher, Query q, int maxGroups, SearchCursor after)
+            throws IOException {
+        return topGroups(searcher, q, maxGroups, after, Collections.emptySet());
+    }
+
+    /**
+     * @param returned groups to leave out, see {@link TopGroupsCollector#returnedGroups}
+     */
+    public TopGroupsCollector topGroups(IndexSearcher searcher, Query q, int maxGroups, SearchCursor after,
+                                        Set<String> returned) throws IOException {
+        List<Partition> split = executor == null ? Collections.emptyList() : split(searcher.getIndexReader().leaves());
+        if (split.size() < 2) {
+            TopGroupsCollector collector = new TopGroupsCollector(maxGroups, after, returned);
+            searcher.search(q, collector);
+            return collector;
+        }
+
+        Weight weight = searcher.createNormalizedWeight(q, true);
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<Future<TopGroupsCollector>> futures = new ArrayList<>(split.size());
+        for (Partition partition : split) {
+            futures.add(executor.submit(score(weight, partition, maxGroups, after, returned, abandoned)));
+        }
+        TopGroupsCollector merged = new TopGroupsCollector(maxGroups, after);
+        IOException failure = null;
+        // wait for every partition even after a failure, the caller releases the searcher once this returns
+        for (Future<TopGroupsCollector> future : futures) {
+            try {
+                merged.merge(future.get());
+            } catch (InterruptedException e) {
+                // partitions that have not started are skipped, the running ones still read the searcher
+                abandoned.set(true);
+                awaitUninterruptibly(futures);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted ranking groups");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null) {
+                    failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return merged;
+    }
+
+    private static Callable<TopGroupsCollector> score(Weight weight, Partition partition, int maxGroups,
+                                                      SearchCursor after, Set<String> returned,
+                                                      AtomicBoolean abandoned) {
+        return () -> {
+            TopGroupsCollector collector = new TopGroupsCollector(maxGroups, after, returned);
+            if (abandoned.get()) {
+                return collector;
+            }
+            BulkScorer scorer = weight.bulkScorer(partition.leaf);
+            if (scorer != null) {
+                scorer.score(collector.getLeafCollector(partition.leaf), partition.leaf.reader().getLiveDocs(),
+                        partition.minDoc, partition.maxDoc);
+            }
+            return collector;
+        };
+    }
+
+    private static void awaitUninterruptibly(List<Future<TopGroupsCollector>> futures) {
+        boolean interrupted = false;
+        for (Future<TopGroupsCollector> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Doc ranges of about {@code maxDoc / partitions} docs each, none smaller than the configured minimum and none
+     * crossing a segment boundary.
+     */
+    List<Partition> split(List<LeafReaderContext> leaves) {
+        long totalDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        int size = (int) Math.max(minPartitionDocs, (totalDocs + partitions - 1) / Math.max(partitions, 1));
+        List<Partition> split = new ArrayList<>();
+        for (LeafReaderContext leaf : leaves) {
+            int maxDoc = leaf.reader().maxDoc();
+            for (int min = 0; min < maxDoc; min += size) {
+                split.add(new Partition(leaf, min, (int) Math.min((long) min + size, maxDoc)));
+            }
+        }
+        return split;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (executor != null) {
+            new ExecutorServiceMetrics(executor, "javafind.search.parallel", Collections.emptyList()).bindTo(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    static class Partition {
+        final LeafReaderContext leaf;
+        final int minDoc;
+        // exclusive
+        final int maxDoc;
+
+        Partition(LeafReaderContext leaf, int minDoc, int maxDoc) {
+            this.leaf = leaf;
+            this.minDoc = minDoc;
+            this.maxDoc = maxDoc;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the first-page artifact searches by query, so that the most popular ones can be replayed into a cold
+ * index: at startup, as part of {@link IndexInitializer}'s warmup, and right after every index update swaps in a new
+ * generation. Queries are counted exactly as typed, which is how {@link SearchResultCache} keys them, and replayed
+ * the way /searcha runs them, so the replay warms the entries users hit. Counting is a map lookup and a
+ * {@link LongAdder} increment, no lock. The top queries are written to disk periodically and at shutdown, and read
+ * back at startup, so popularity survives restarts.
+ */
+@Slf4j
+@Component
+public class QueryPopularity {
+
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final FederatedSearchService federatedSearchService;
+    private final File file;
+    private final int maxTracked;
+    private final int replayTop;
+    private final ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final ExecutorService replayExecutor;
+    private final AtomicBoolean replayPending = new AtomicBoolean();
+
+    private final LongAdder untracked = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    // registers its meters itself: as a MeterBinder its dependency on SearchService would form a cycle with the registry
+    public QueryPopularity(FederatedSearchService federatedSearchService, MeterRegistry registry,
+                           @Value("${javafind.popularity.file:${user.home}/.javafind/popular-queries.txt}") File file,
+                           @Value("${javafind.popularity.max-tracked:10000}") int maxTracked,
+                           @Value("${javafind.popularity.replay-top:100}") int replayTop) {
+        this.federatedSearchService = federatedSearchService;
+        this.file = file;
+        this.maxTracked = maxTracked;
+        this.replayTop = replayTop;
+        this.replayExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "query-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("javafind.popularity.tracked", counts, Map::size).register(registry);
+        FunctionCounter.builder("javafind.popularity.untracked", untracked, LongAdder::sum)
+                .description("Searches not counted because the tracked set was full").register(registry);
+        FunctionCounter.builder("javafind.popularity.replayed", replayed, LongAdder::sum)
+                .description("Popular queries replayed into a new index generation").register(registry);
+    }
+
+    public void record(String query) {
+        // the file holds one tab-separated query per line
+        if (query.isBlank() || query.length() > MAX_QUERY_LENGTH || query.indexOf('\t') >= 0
+                || query.indexOf('\n') >= 0 || query.indexOf('\r') >= 0) {
+            return;
+        }
+        LongAdder count = counts.get(query);
+        if (count == null) {
+            if (counts.size() >= maxTracked) {
+                // pruned back to the popular half when persisted
+                untracked.increment();
+                return;
+            }
+            count = counts.computeIfAbsent(query, q -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * The {@code n} most searched queries, most popular first.
+     */
+    public List<String> topQueries(int n) {
+        return top(n).stream().map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    private List<Map.Entry<String, Long>> top(int n) {
+        List<Map.Entry<String, Long>> snapshot = new ArrayList<>(counts.size());
+        counts.forEach((query, count) -> snapshot.add(Map.entry(query, count.sum())));
+        snapshot.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        return snapshot.subList(0, Math.min(n, snapshot.size()));
+    }
+
+    /**
+     * The queries worth replaying into a cold index.
+     */
+    public List<String> replayQueries() {
+        return topQueries(replayTop);
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab <= 0) {
+                continue;
+            }
+            try {
+                long count = Long.parseLong(line.substring(0, tab));
+                counts.computeIfAbsent(line.substring(tab + 1), q -> new LongAdder()).add(count);
+            } catch (NumberFormatException e) {
+                log.debug("Skipping malformed line in {}: {}", file, line);
+            }
+        }
+        log.info("Loaded {} popular queries from {}", counts.size(), file);
+    }
+
+    /**
+     * Writes the popular half of the tracked queries, which are also all that is kept of them in memory.
+     */
+    @Scheduled(initialDelayString = "${javafind.popularity.persist-interval-ms:300000}",
+            fixedDelayString = "${javafind.popularity.persist-interval-ms:300000}")
+    public synchronized void persist() {
+        List<Map.Entry<String, Long>> top = top(Math.max(1, maxTracked / 2));
+        if (counts.size() >= maxTracked) {
+            counts.keySet().retainAll(top.stream().map(Map.Entry::getKey).collect(Collectors.toSet()));
+        }
+        if (top.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, Long> entry : top) {
+            lines.append(entry.getValue()).append('\t').append(entry.getKey()).append('\n');
+        }
+        try {
+            Path target = file.toPath();
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(tmp, lines.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write popular queries to {}", file, e);
+        }
+    }
+
+    /**
+     * After an update, replays the top queries so that the first users of the new generation find its result cache
+     * and Lucene's caches warm. Generation 0 is the index opened at startup, which {@link IndexInitializer} warms.
+     * Runs on its own thread, at most one replay queued at a time.
+     */
+    @EventListener
+    public void onGenerationChanged(IndexGenerationChangedEvent event) {
+        if (event.getGeneration() == 0 || !replayPending.compareAndSet(false, true)) {
+            return;
+        }
+        replayExecutor.execute(() -> {
+            replayPending.set(false);
+            replay(replayQueries());
+        });
+    }
+
+    private void replay(List<String> queries) {
+        long start = System.nanoTime();
+        for (String query : queries) {
+            try {
+                federatedSearchService.search(SearchMode.ARTIFACT, query, 1, null);
+            } catch (Exception e) {
+                log.debug("Replaying '{}' failed", query, e);
+            }
+            replayed.increment();
+        }
+        log.info("Replayed {} popular queries in {} ms", queries.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+        persist();
+    }
+}
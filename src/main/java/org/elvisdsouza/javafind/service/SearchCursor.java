@@ -0,0 +1,45 @@
+package org.elvisdsouza.javafind.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Search-after position in a grouped result list: the score and GA key of the last group already returned.
+ * Groups are ranked by score descending, ties broken by key ascending.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchCursor {
+    private final float score;
+    private final String groupKey;
+
+    public boolean isBefore(float otherScore, String otherKey) {
+        // true if (otherScore, otherKey) was already returned at or before this cursor
+        if (otherScore != score) {
+            return otherScore > score;
+        }
+        return otherKey.compareTo(groupKey) <= 0;
+    }
+
+    public String encode() {
+        String raw = Integer.toHexString(Float.floatToIntBits(score)) + ":" + groupKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep <= 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("Malformed search cursor");
+            }
+            float score = Float.intBitsToFloat(Integer.parseUnsignedInt(raw.substring(0, sep), 16));
+            return new SearchCursor(score, raw.substring(sep + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed search cursor: " + encoded, e);
+        }
+    }
+}
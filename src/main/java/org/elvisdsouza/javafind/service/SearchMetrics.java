@@ -0,0 +1,72 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms for the stages of an uncached /searcha request, and the size of the index they run on.
+ */
+@Component
+public class SearchMetrics {
+
+    public enum Stage {
+        /** user input to Lucene query */
+        PARSE,
+        /** ranking the GA groups */
+        SEARCH,
+        /** loading the versions of the groups on the page */
+        GROUP,
+        /** groups to {@link org.elvisdsouza.javafind.domain.JavaFindArtifact}s */
+        MAP,
+        /** writing the response body */
+        SERIALIZE
+    }
+
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final AtomicLong indexBytes = new AtomicLong();
+
+    public SearchMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("javafind.search.stage")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        Gauge.builder("javafind.index.size", indexBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Disk size of the live central index").register(registry);
+    }
+
+    /**
+     * Records the size of a newly live index directory and returns it.
+     */
+    public long indexOpened(File indexDir) {
+        long bytes = 0;
+        File[] files = indexDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                bytes += file.length();
+            }
+        }
+        indexBytes.set(bytes);
+        return bytes;
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a {@link System#nanoTime()} reading, and returns the current reading
+     * so consecutive stages can be chained.
+     */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stages.get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+}
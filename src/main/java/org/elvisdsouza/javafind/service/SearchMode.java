@@ -0,0 +1,21 @@
+package org.elvisdsouza.javafind.service;
+
+import java.util.Locale;
+
+public enum SearchMode {
+    /** groupId/artifactId text */
+    ARTIFACT,
+    /** simple or fully qualified class name prefix */
+    CLASS;
+
+    /**
+     * @throws IllegalArgumentException for an unknown mode
+     */
+    public static SearchMode parse(String mode) {
+        try {
+            return valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search mode '" + mode + "', expected artifact or class");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Bounded LRU + TTL cache of /searcha results, keyed on the search mode, query and page. The whole cache is dropped as soon as a
+ * lookup sees a different index timestamp than the one its entries were computed against.
+ * <p>
+ * The query is the key exactly as typed: case and blanks change what {@link UserQueryBuilder} parses ("a AND b" is
+ * a boolean query, "a and b" is not; a trailing blank turns off the implicit prefix match).
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    public interface Loader {
+        SearchResult load() throws IOException;
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, Entry> entries;
+    private Date generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SearchResultCache(@Value("${javafind.search.cache.max-entries:10000}") int maxEntries,
+                             @Value("${javafind.search.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > SearchResultCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public SearchResult get(SearchMode mode, String input, int pageNumber, String afterCursor, Date indexGeneration,
+                            Loader loader) throws IOException {
+        return get(mode, input, pageNumber, afterCursor, indexGeneration, loader, result -> true);
+    }
+
+    /**
+     * @param storable whether a loaded result may be kept, e.g. not one that is missing a repository that timed out
+     */
+    public SearchResult get(SearchMode mode, String input, int pageNumber, String afterCursor, Date indexGeneration,
+                            Loader loader, Predicate<SearchResult> storable) throws IOException {
+        if (maxEntries <= 0) {
+            return loader.load();
+        }
+        boolean byCursor = afterCursor != null && !afterCursor.isEmpty();
+        Key key = new Key(mode, input, byCursor ? 0 : pageNumber, byCursor ? afterCursor : null);
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            if (!Objects.equals(generation, indexGeneration)) {
+                if (!entries.isEmpty()) {
+                    invalidations.increment();
+                    entries.clear();
+                }
+                generation = indexGeneration;
+            }
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.createdNanos < ttlNanos) {
+                    hits.increment();
+                    return entry.result;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        SearchResult result = loader.load();
+        synchronized (entries) {
+            // don't store results computed against an index that has since been replaced
+            if (Objects.equals(generation, indexGeneration) && storable.test(result)) {
+                entries.put(key, new Entry(result, now));
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("javafind.search.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("javafind.search.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("javafind.search.cache.evictions", evictions, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.search.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Full flushes caused by an index generation change").register(registry);
+        Gauge.builder("javafind.search.cache.size", this, SearchResultCache::size).register(registry);
+    }
+
+    private static class Key {
+        private final SearchMode mode;
+        private final String input;
+        // 0 when paging by cursor
+        private final int pageNumber;
+        private final String afterCursor;
+
+        Key(SearchMode mode, String input, int pageNumber, String afterCursor) {
+            this.mode = mode;
+            this.input = input;
+            this.pageNumber = pageNumber;
+            this.afterCursor = afterCursor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mode == other.mode && pageNumber == other.pageNumber && input.equals(other.input)
+                    && Objects.equals(afterCursor, other.afterCursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, input, pageNumber, afterCursor);
+        }
+    }
+
+    private static class Entry {
+        private final SearchResult result;
+        private final long createdNanos;
+
+        Entry(SearchResult result, long createdNanos) {
+            this.result = result;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
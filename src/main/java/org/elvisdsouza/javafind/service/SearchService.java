@@ -1,25 +1,33 @@
 package org.elvisdsouza.javafind.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
-import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.maven.index.*;
 import org.apache.maven.index.artifact.Gav;
 import org.apache.maven.index.artifact.GavCalculator;
 import org.apache.maven.index.artifact.M2GavCalculator;
+import org.apache.maven.index.context.DefaultIndexingContext;
 import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexUtils;
 import org.apache.maven.index.context.IndexingContext;
 import org.apache.maven.index.context.NexusAnalyzer;
-import org.apache.maven.index.expr.SourcedSearchExpression;
 import org.apache.maven.index.expr.UserInputSearchExpression;
-import org.apache.maven.index.search.grouping.GAGrouping;
 import org.apache.maven.index.updater.*;
 import org.apache.maven.wagon.Wagon;
 import org.apache.maven.wagon.events.TransferEvent;
@@ -30,29 +38,109 @@ import org.codehaus.plexus.component.repository.exception.ComponentLookupExcepti
 import org.codehaus.plexus.util.StringUtils;
 import org.elvisdsouza.javafind.domain.JavaFindArtifact;
 import org.elvisdsouza.javafind.domain.SearchResult;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class SearchService {
 
-    private final PlexusContainer plexusContainer;
-    private final Indexer indexer;
-    private final IndexUpdater indexUpdater;
-    private final Wagon httpWagon;
-    private IndexingContext centralContext;
+    // set up by initialize(), published to other threads by the first generation
+    private PlexusContainer plexusContainer;
+    private Indexer indexer;
+    private IndexUpdater indexUpdater;
+    private Wagon httpWagon;
+    private final SearchResultCache resultCache;
+    private final SourcesFilter sourcesFilter;
+    private final UserQueryBuilder queryBuilder;
+    private final ClassNameIndex classNameIndex;
+    private final ParallelGroupSearch parallelGroupSearch;
+    private final SearchMetrics searchMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final File centralLocalCache;
+    private final File centralIndexDir;
+    private final String repositoryUrl;
+    private final IndexProfile indexProfile;
+    private final boolean mmapPreload;
+    private List<IndexCreator> indexers;
+    private final AtomicReference<IndexGeneration> currentGeneration = new AtomicReference<>();
+    // other repositories' indexes, searched alongside central by FederatedSearchService
+    private final Map<String, IndexGeneration> mirrors = new ConcurrentHashMap<>();
+    private final int maxVersions;
+    private boolean closed;
+
+    public static final String CENTRAL_REPOSITORY = "central";
+    private static final String CONTEXT_ID = "central-context";
+    private static final int PAGE_SIZE = 10;
+    // the ordering the indexer itself uses for versions
+    private static final GenericVersionScheme VERSION_SCHEME = new GenericVersionScheme();
+    // Upper bound on groups ranked for a page-number request; deeper pages must use the search-after cursor
+    private static final int MAX_GROUP_WINDOW = 1000;
+
+    public SearchService(SearchResultCache resultCache, SourcesFilter sourcesFilter, UserQueryBuilder queryBuilder,
+                         ClassNameIndex classNameIndex, ParallelGroupSearch parallelGroupSearch,
+                         SearchMetrics searchMetrics,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${javafind.index.dir:${user.home}/.javafind/central-index}") File centralIndexDir,
+                         @Value("${javafind.index.cache-dir:${user.home}/.javafind/central-cache}") File centralLocalCache,
+                         @Value("${javafind.index.repository-url:https://repo1.maven.org/maven2}") String repositoryUrl,
+                         @Value("${javafind.index.profile:full}") String indexProfile,
+                         @Value("${javafind.index.mmap-preload:false}") boolean mmapPreload,
+                         @Value("${javafind.search.max-versions:20}") int maxVersions) {
+        this.resultCache = resultCache;
+        this.sourcesFilter = sourcesFilter;
+        this.queryBuilder = queryBuilder;
+        this.classNameIndex = classNameIndex;
+        this.parallelGroupSearch = parallelGroupSearch;
+        this.searchMetrics = searchMetrics;
+        this.eventPublisher = eventPublisher;
+        this.centralIndexDir = centralIndexDir.getAbsoluteFile();
+        this.centralLocalCache = centralLocalCache.getAbsoluteFile();
+        this.repositoryUrl = repositoryUrl;
+        this.indexProfile = IndexProfile.parse( indexProfile );
+        this.mmapPreload = mmapPreload;
+        this.maxVersions = maxVersions;
+    }
 
-    public SearchService() throws PlexusContainerException, ComponentLookupException, IOException {
+    /**
+     * Starts the Plexus container and opens the live index as generation 0. Slow (classpath index scanning, cache
+     * warming), so the application runs it in the background; until it returns, anything that needs the index throws
+     * {@link IndexNotReadyException}.
+     */
+    public synchronized void initialize() throws PlexusContainerException, ComponentLookupException, IOException {
+        if ( closed || currentGeneration.get() != null ) {
+            return;
+        }
+        long start = System.nanoTime();
         final DefaultContainerConfiguration config = new DefaultContainerConfiguration();
         config.setClassPathScanning( PlexusConstants.SCANNING_INDEX );
         this.plexusContainer = new DefaultPlexusContainer( config );
@@ -62,160 +150,358 @@ public class SearchService {
         // lookup wagon used to remotely fetch index
         this.httpWagon = plexusContainer.lookup( Wagon.class, "https" );
 
-        File centralLocalCache = new File( "D:\\Projects\\Java\\testindex\\central-cache");//"target/central-cache" );
-        File centralIndexDir = new File( "D:\\Projects\\Java\\testindex\\central-index");//"target/central-index" );
-
-        // Creators we want to use (search for fields it defines)
-        List<IndexCreator> indexers = new ArrayList<IndexCreator>();
-        indexers.add( plexusContainer.lookup( IndexCreator.class, "min" ) );
-        indexers.add( plexusContainer.lookup( IndexCreator.class, "jarContent" ) );
-        indexers.add( plexusContainer.lookup( IndexCreator.class, "maven-plugin" ) );
+        // Creators of the configured profile, they decide which fields documents are written with
+        indexers = new ArrayList<IndexCreator>();
+        for ( String creator : this.indexProfile.getCreators() ) {
+            indexers.add( plexusContainer.lookup( IndexCreator.class, creator ) );
+        }
 
         // Files where local cache is (if any) and Lucene Index should be located
-        centralContext =
-                indexer.createIndexingContext( "central-context", "central", centralLocalCache, centralIndexDir,
-                        "https://repo1.maven.org/maven2", null, true, true, indexers );
+        File liveDir = readCurrentIndexDir();
+        IndexingContext liveContext = openContext( liveDir );
+        sourcesFilter.warm( liveContext );
+        ClassNameIndex.Names classNames = classNameIndex.build( liveContext );
+        currentGeneration.set( new IndexGeneration( 0, liveContext, liveDir, classNames ) );
+        long indexBytes = searchMetrics.indexOpened( liveDir );
+        log.info( "Opened index {} ({} profile, {} MB) in {} ms", liveDir, indexProfile, indexBytes >> 20,
+                ( System.nanoTime() - start ) / 1_000_000 );
+        eventPublisher.publishEvent( new IndexGenerationChangedEvent( 0, liveContext.getTimestamp() ) );
+    }
+
+    public boolean isInitialized() {
+        return currentGeneration.get() != null;
+    }
+
+    private IndexGeneration live() {
+        IndexGeneration live = currentGeneration.get();
+        if ( live == null ) {
+            throw new IndexNotReadyException();
+        }
+        return live;
+    }
 
+    private IndexingContext openContext(File indexDir) throws IOException {
+        return openContext( CONTEXT_ID, CENTRAL_REPOSITORY, centralLocalCache, indexDir, repositoryUrl, true );
     }
 
-    public void updateIndex() throws IOException {
+    /**
+     * Memory-mapped, so searches read the index straight from the page cache instead of copying it through
+     * read buffers. Preloading touches every page on open, trading a slower open for no cold first searches.
+     */
+    @SuppressWarnings( "deprecation" )
+    private IndexingContext openContext(String id, String repositoryId, File repository, File indexDir,
+                                        String repositoryUrl, boolean reclaimIndex) throws IOException {
+        MMapDirectory directory = new MMapDirectory( indexDir.toPath() );
+        directory.setPreload( mmapPreload );
+        try {
+            return new DefaultIndexingContext( id, repositoryId, repository, directory, repositoryUrl, null,
+                    indexers, reclaimIndex );
+        } catch ( IOException | RuntimeException e ) {
+            directory.close();
+            throw e;
+        }
+    }
+
+    public IndexProfile getIndexProfile() {
+        return indexProfile;
+    }
 
-        if ( true )
+    /**
+     * The context of the current generation, for metadata such as the repository URL or timestamp. Anything that
+     * searches must go through {@link #acquireGeneration()} instead, since the context may be closed once swapped out.
+     */
+    public IndexingContext getCentralContext() {
+        return live().getContext();
+    }
+
+    /**
+     * @return -1 until {@link #initialize()} has opened the index
+     */
+    public long getCurrentGeneration() {
+        IndexGeneration live = currentGeneration.get();
+        return live == null ? -1 : live.getNumber();
+    }
+
+    public IndexGeneration acquireGeneration() {
+        while ( true ) {
+            IndexGeneration generation = live();
+            if ( generation.tryIncRef() ) {
+                return generation;
+            }
+            // swapped out and closed under us; the next read sees its successor
+        }
+    }
+
+    public void releaseGeneration(IndexGeneration generation) throws IOException {
+        generation.decRef();
+    }
+
+    public ResourceFetcher newRemoteFetcher() {
+        // Create ResourceFetcher implementation to be used with IndexUpdateRequest
+        // Here, we use Wagon based one as shorthand, but all we need is a ResourceFetcher implementation
+        TransferListener listener = new AbstractTransferListener()
         {
-            System.out.println( "Updating Index..." );
-            System.out.println( "This might take a while on first run, so please be patient!" );
-            // Create ResourceFetcher implementation to be used with IndexUpdateRequest
-            // Here, we use Wagon based one as shorthand, but all we need is a ResourceFetcher implementation
-            TransferListener listener = new AbstractTransferListener()
+            public void transferStarted( TransferEvent transferEvent )
             {
-                public void transferStarted( TransferEvent transferEvent )
-                {
-                    System.out.print( "  Downloading " + transferEvent.getResource().getName() );
-                }
+                log.info( "Downloading {}", transferEvent.getResource().getName() );
+            }
 
-                public void transferProgress( TransferEvent transferEvent, byte[] buffer, int length )
-                {
-                }
+            public void transferProgress( TransferEvent transferEvent, byte[] buffer, int length )
+            {
+            }
 
-                public void transferCompleted( TransferEvent transferEvent )
-                {
-                    System.out.println( " - Done" );
-                }
-            };
-            ResourceFetcher resourceFetcher = new WagonHelper.WagonFetcher( httpWagon, listener, null, null );
+            public void transferCompleted( TransferEvent transferEvent )
+            {
+                log.info( "Downloaded {}", transferEvent.getResource().getName() );
+            }
+        };
+        return new WagonHelper.WagonFetcher( httpWagon, listener, null, null );
+    }
 
-            Date centralContextCurrentTimestamp = centralContext.getTimestamp();
-            IndexUpdateRequest updateRequest = new IndexUpdateRequest( centralContext, resourceFetcher );
+    public IndexUpdateResult updateIndex() throws IOException {
+        return updateIndex( newRemoteFetcher() );
+    }
+
+    /**
+     * Applies an update to a staging copy of the live index and, if anything changed, atomically swaps it in.
+     * Searches keep running against the previous generation until the swap and never see a half-applied update.
+     */
+    public synchronized IndexUpdateResult updateIndex(ResourceFetcher resourceFetcher) throws IOException {
+        log.info( "Updating index, this might take a while on first run" );
+
+        IndexGeneration live = live();
+        File stagingDir = newGenerationDir();
+        stageCopy( live.getDirectory(), stagingDir );
+
+        IndexingContext staging = openContext( stagingDir );
+        boolean swapped = false;
+        try {
+            Date centralContextCurrentTimestamp = live.getContext().getTimestamp();
+            IndexUpdateRequest updateRequest = new IndexUpdateRequest( staging, resourceFetcher );
             IndexUpdateResult updateResult = indexUpdater.fetchAndUpdateIndex( updateRequest );
             if ( updateResult.isFullUpdate() )
             {
-                System.out.println( "Full update happened!" );
+                log.info( "Full update happened" );
             }
-            else if ( updateResult.getTimestamp().equals( centralContextCurrentTimestamp ) )
+            else if ( updateResult.getTimestamp() == null
+                    || updateResult.getTimestamp().equals( centralContextCurrentTimestamp ) )
             {
-                System.out.println( "No update needed, index is up to date!" );
+                log.info( "No update needed, index is up to date" );
+                return updateResult;
             }
             else
             {
-                System.out.println(
-                        "Incremental update happened, change covered " + centralContextCurrentTimestamp + " - "
-                                + updateResult.getTimestamp() + " period." );
+                log.info( "Incremental update happened, change covered {} - {} period",
+                        centralContextCurrentTimestamp, updateResult.getTimestamp() );
             }
 
-            System.out.println();
+            swapIn( staging, stagingDir );
+            swapped = true;
+            return updateResult;
+        } finally {
+            if ( !swapped ) {
+                staging.close( false );
+                FileUtils.deleteDirectory( stagingDir );
+            }
         }
-
     }
 
-    public SearchResult searchUserInput(String userQueryString) throws IOException {
-
-        Query qq = constructSuperQuery(userQueryString);
-
-        // Only sources
-        Query sourcesQ = indexer.constructQuery(MAVEN.CLASSIFIER, new SourcedSearchExpression( "sources" ));
-        BooleanQuery mainQuery = new BooleanQuery.Builder()
-                .add(qq, BooleanClause.Occur.MUST)
-                .add(sourcesQ, BooleanClause.Occur.MUST)
-                .build();
-
-        return searchGrouped(this.indexer, "SearchQuery: "+userQueryString, mainQuery, 10, 1);
+    /**
+     * Opens a fully written index directory, such as one produced by {@link BulkIndexImporter}, and swaps it in as
+     * the next generation.
+     */
+    public synchronized void installIndex(File indexDir, Set<String> allGroups, Set<String> rootGroups)
+            throws IOException {
+        IndexingContext context = openContext( indexDir );
+        boolean swapped = false;
+        try {
+            context.setAllGroups( allGroups );
+            context.setRootGroups( rootGroups );
+            context.commit();
+            swapIn( context, indexDir );
+            swapped = true;
+        } finally {
+            if ( !swapped ) {
+                context.close( false );
+            }
+        }
     }
 
-    public Query constructSuperQuery(String userQueryString) {
-
-        /*Query query_aid = indexer.constructQuery(MAVEN.ARTIFACT_ID, new UserInputSearchExpression(userQueryString));
-        Query query_gid = indexer.constructQuery(MAVEN.GROUP_ID, new UserInputSearchExpression(userQueryString));
+    File newGenerationDir() {
+        return new File( centralIndexDir.getParentFile(), centralIndexDir.getName() + "-" + System.currentTimeMillis() );
+    }
 
-        BooleanQuery booleanQuery = new BooleanQuery.Builder()
-                .add(query_aid, BooleanClause.Occur.SHOULD)
-                .add(query_gid, BooleanClause.Occur.SHOULD).build();
+    private void swapIn(IndexingContext context, File indexDir) throws IOException {
+        sourcesFilter.warm( context );
+        ClassNameIndex.Names classNames = classNameIndex.build( context );
+        IndexGeneration live = live();
+        IndexGeneration next = new IndexGeneration( live.getNumber() + 1, context, indexDir, classNames );
+        writeCurrentIndexDir( indexDir );
+        currentGeneration.set( next );
+        live.retire( true );
+        long indexBytes = searchMetrics.indexOpened( indexDir );
+        log.info( "Index generation {} ({}, {} MB) is live, timestamp {}", next.getNumber(), indexDir, indexBytes >> 20,
+                context.getTimestamp() );
+        eventPublisher.publishEvent( new IndexGenerationChangedEvent( next.getNumber(), context.getTimestamp() ) );
+    }
 
-        return booleanQuery;*/
+    /**
+     * Seeds a staging directory from the live index. Lucene never rewrites a segment file once written, so those are
+     * hard-linked; the few small files the updater rewrites in place (properties, descriptors) are copied.
+     */
+    private static void stageCopy(File liveDir, File stagingDir) throws IOException {
+        Files.createDirectories( stagingDir.toPath() );
+        File[] files = liveDir.listFiles();
+        if ( files == null ) {
+            return;
+        }
+        for ( File file : files ) {
+            String name = file.getName();
+            if ( !file.isFile() || name.equals( IndexWriter.WRITE_LOCK_NAME ) ) {
+                continue;
+            }
+            Path target = stagingDir.toPath().resolve( name );
+            boolean immutable = name.startsWith( "_" ) || name.startsWith( IndexFileNames.SEGMENTS );
+            if ( immutable ) {
+                try {
+                    Files.createLink( target, file.toPath() );
+                    continue;
+                } catch ( IOException | UnsupportedOperationException e ) {
+                    // e.g. a filesystem without hard links, fall back to copying
+                }
+            }
+            Files.copy( file.toPath(), target );
+        }
+    }
 
-        String queryString = userQueryString;
+    // The live generation's directory survives restarts through a small pointer file next to the index
+    private File currentIndexDirPointer() {
+        return new File( centralIndexDir.getParentFile(), centralIndexDir.getName() + ".current" );
+    }
 
-        IndexerField groupIdIndexerField = selectIndexerField(MAVEN.GROUP_ID, SearchType.SCORED);
-        IndexerField artifactIdIndexerField = selectIndexerField(MAVEN.ARTIFACT_ID, SearchType.SCORED);
+    private File readCurrentIndexDir() throws IOException {
+        File pointer = currentIndexDirPointer();
+        if ( pointer.isFile() ) {
+            File dir = new File( centralIndexDir.getParentFile(),
+                    new String( Files.readAllBytes( pointer.toPath() ), StandardCharsets.UTF_8 ).trim() );
+            if ( dir.isDirectory() ) {
+                return dir;
+            }
+        }
+        return centralIndexDir;
+    }
 
-        MultiFieldQueryParser parser = new MultiFieldQueryParser(
-                new String[]{groupIdIndexerField.getKey(), artifactIdIndexerField.getKey()},
-                new NexusAnalyzer());
-        parser.setDefaultOperator(QueryParser.AND_OPERATOR);
+    private void writeCurrentIndexDir(File dir) throws IOException {
+        File pointer = currentIndexDirPointer();
+        File tmp = new File( pointer.getPath() + ".tmp" );
+        Files.write( tmp.toPath(), dir.getName().getBytes( StandardCharsets.UTF_8 ) );
+        Files.move( tmp.toPath(), pointer.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
 
-        // Copied from DefaultQueryCreator
-        if ( queryString.matches( ".*(\\.|-|_|/).*" ) ) {
-            queryString = queryString.toLowerCase().replaceAll( "\\*", "X" ).replaceAll( "\\.|-|_|/", " " ).replaceAll( "X",
-                            "*" ).replaceAll( " \\* ", "" ).replaceAll( "^\\* ", "" ).replaceAll( " \\*$", "" );
+    /**
+     * Opens another repository's index for searching. It is served as is; keeping it current is up to whoever
+     * writes it.
+     */
+    public IndexGeneration openMirror(String repositoryId, String repositoryUrl, File indexDir) throws IOException {
+        if ( indexers == null ) {
+            throw new IndexNotReadyException();
         }
-
-        if ( !queryString.endsWith( "*" ) && !queryString.endsWith( " " ) ) {
-            queryString += "*";
+        if ( repositoryId.equals( CENTRAL_REPOSITORY ) || mirrors.containsKey( repositoryId ) ) {
+            throw new IllegalArgumentException( "Repository " + repositoryId + " is already open" );
         }
-
+        IndexingContext context = openContext( repositoryId + "-context", repositoryId, null,
+                indexDir.getAbsoluteFile(), repositoryUrl, false );
+        IndexGeneration mirror;
         try {
-            BooleanQuery.Builder q1Build = new BooleanQuery.Builder()
-                    .add(parser.parse(queryString), BooleanClause.Occur.SHOULD);
+            sourcesFilter.warm( context );
+            mirror = new IndexGeneration( 0, context, indexDir, classNameIndex.build( context ) );
+        } catch ( IOException | RuntimeException e ) {
+            context.close( false );
+            throw e;
+        }
+        mirrors.put( repositoryId, mirror );
+        log.info( "Opened index of {} ({}) from {}", repositoryId, repositoryUrl, indexDir );
+        return mirror;
+    }
 
-            if ( queryString.contains( " " ) )
-            {
-                q1Build.add( parser.parse( "\"" + queryString + "\"" ), BooleanClause.Occur.SHOULD );
-            }
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        closed = true;
+        IndexGeneration live = currentGeneration.getAndSet( null );
+        if ( live != null ) {
+            live.retire( false );
+        }
+        for ( IndexGeneration mirror : mirrors.values() ) {
+            mirror.retire( false );
+        }
+        mirrors.clear();
+    }
 
-            Query q2 = null;
+    public SearchResult searchUserInput(String userQueryString, int pageNumber, String afterCursor) throws IOException {
+        return resultCache.get(SearchMode.ARTIFACT, userQueryString, pageNumber, afterCursor,
+                getCentralContext().getTimestamp(),
+                () -> searchUncached(SearchMode.ARTIFACT, userQueryString, pageNumber, afterCursor));
+    }
 
-            /*int termCount = countTerms( indexerField, userQueryString );
+    /**
+     * The GAs with a jar containing a class named {@code className}, listing their sources versions that have the
+     * class. Class names are indexed from the main jars, so those are matched and ranked rather than the sources.
+     */
+    public SearchResult searchClassName(String className, int pageNumber, String afterCursor) throws IOException {
+        return resultCache.get(SearchMode.CLASS, className, pageNumber, afterCursor, getCentralContext().getTimestamp(),
+                () -> searchUncached(SearchMode.CLASS, className, pageNumber, afterCursor));
+    }
 
-            // try with KW only if the processed query in qpQuery does not have spaces!
-            if ( !userQueryString.contains( " " ) && termCount > 1 )
-            {
-                // get the KW field
-                IndexerField keywordField = selectIndexerField( indexerField.getOntology(), SearchType.EXACT );
+    private SearchResult searchUncached(SearchMode mode, String input, int pageNumber, String afterCursor)
+            throws IOException {
+        IndexGeneration generation = acquireGeneration();
+        try {
+            return search(generation, mode, input, PAGE_SIZE, pageNumber, afterCursor);
+        } finally {
+            releaseGeneration(generation);
+        }
+    }
 
-                if ( keywordField.isKeyword() )
-                {
-                    q2 = indexer.constructQuery( indexerField.getOntology(), keywordField, userQueryString, SearchType.SCORED );
+    /**
+     * One uncached search against a generation the caller holds, so that several searches can see the same index.
+     */
+    public SearchResult search(IndexGeneration generation, SearchMode mode, String input, int pageSize, int pageNumber,
+                               String afterCursor) throws IOException {
+        long start = System.nanoTime();
+        Query query;
+        Query listedQuery = null;
+        switch (mode) {
+            case CLASS:
+                if (!indexProfile.hasClassNames()) {
+                    throw new IllegalArgumentException("Class-name search needs an index profile with class names, this index is "
+                            + indexProfile);
                 }
-            }*/
-
-            BooleanQuery q1 = q1Build.build();
-            if ( q2 == null )
-            {
-                return q1;
-            }
-            else
-            {
-                BooleanQuery bq = new BooleanQuery.Builder()
-                    // trick with order
-                    .add( q2, BooleanClause.Occur.SHOULD )
-                    .add( q1, BooleanClause.Occur.SHOULD ).build();
+                // class names are indexed on the main jars, so rank those of the versions that have sources
+                query = new BooleanQuery.Builder()
+                        .add(generation.getClassNames().query(input), BooleanClause.Occur.MUST)
+                        .add(sourcesFilter.versionHasSourcesQuery(), BooleanClause.Occur.FILTER)
+                        .build();
+                listedQuery = sourcesFilter.asQuery();
+                break;
+            case ARTIFACT:
+            default:
+                // Only sources, as a cached bitset rather than the classifier postings on every request
+                query = new BooleanQuery.Builder()
+                        .add(constructSuperQuery(input), BooleanClause.Occur.MUST)
+                        .add(sourcesFilter.asQuery(), BooleanClause.Occur.FILTER)
+                        .build();
+                break;
+        }
+        searchMetrics.record(SearchMetrics.Stage.PARSE, start);
 
-                return bq;
-            }
+        SearchCursor after = afterCursor == null || afterCursor.isEmpty() ? null : SearchCursor.decode(afterCursor);
+        // only the versions with the exact class name are boosted, so a GA's hits do not all score the same
+        return searchGrouped(generation, mode + ": " + input, query, listedQuery, mode == SearchMode.CLASS, pageSize,
+                pageNumber, after);
+    }
 
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return null;
-        }
+    public Query constructSuperQuery(String userQueryString) {
+        return queryBuilder.build(userQueryString);
     }
 
     protected int countTerms( final IndexerField indexerField, final String query )
@@ -262,66 +548,217 @@ public class SearchService {
     }
 
     public List<JavaFindArtifact> search(Indexer nexusIndexer, String descr, Query q) throws IOException {
-        System.out.println( "Searching for " + descr );
+        log.debug( "Searching for {}", descr );
 
-        FlatSearchRequest fsr = new FlatSearchRequest( q, centralContext );
-        fsr.setCount(10);
-        FlatSearchResponse response = nexusIndexer.searchFlat(fsr);
+        IndexGeneration generation = acquireGeneration();
+        FlatSearchResponse response;
+        try {
+            FlatSearchRequest fsr = new FlatSearchRequest( q, generation.getContext() );
+            fsr.setCount(10);
+            response = nexusIndexer.searchFlat(fsr);
+        } finally {
+            releaseGeneration(generation);
+        }
 
-        System.out.println( "------" );
-        System.out.println( "Total: " + response.getTotalHitsCount() );
-        System.out.println();
+        log.debug( "Total: {}", response.getTotalHitsCount() );
 
         return response.getResults().stream().map(ai -> new JavaFindArtifact(ai)).collect(Collectors.toList());
     }
 
-    public SearchResult searchGrouped(Indexer nexusIndexer, String descr, Query q,
-                                                int pageSize, int pageNumber) throws IOException {
-        System.out.println( " === Grouped Searching Results for -- " + descr );
-        GroupedSearchRequest gsr = new GroupedSearchRequest( q, new GAGrouping(), centralContext );
-        //gsr.setCount(10);
-        GroupedSearchResponse response = nexusIndexer.searchGrouped(gsr);
-        /*for ( Map.Entry<String, ArtifactInfoGroup> entry : response.getResults().entrySet() )
-        {
-            System.out.println( "* Entry KEY" + entry.getKey() );
-            ArtifactInfo ai = entry.getValue().getArtifactInfos().iterator().next();
-            System.out.println( "* Entry " + ai );
-            System.out.println( "  Latest version:  " + ai.getVersion() );
-            System.out.println( StringUtils.isBlank( ai.getDescription() )
-                    ? "No description in plugin's POM."
-                    : StringUtils.abbreviate( ai.getDescription(), 60 ) );
-            System.out.println();
+    public SearchResult searchGrouped(String descr, Query q, int pageSize, int pageNumber,
+                                      SearchCursor after) throws IOException {
+        IndexGeneration generation = acquireGeneration();
+        try {
+            return searchGrouped(generation, descr, q, null, false, pageSize, pageNumber, after);
+        } finally {
+            releaseGeneration(generation);
         }
-        System.out.println( " === Grouped Searching ENDS === ");*/
+    }
 
-        System.out.println( "------" );
-        System.out.println( "Total Grouped: " + response.getTotalHitsCount() );
-        System.out.println( "Total Individual: " + response.getReturnedHitsCount() );
-        System.out.println();
+    /**
+     * @param listedQuery if set, a group lists its artifacts matching this query instead of {@code q}, restricted to
+     *                    the versions that matched {@code q}
+     * @param scoresVaryInGroup whether the hits of one GA may score differently, so that the groups returned before
+     *                          the cursor have to be excluded by key
+     */
+    private SearchResult searchGrouped(IndexGeneration generation, String descr, Query q, Query listedQuery,
+                                       boolean scoresVaryInGroup, int pageSize, int pageNumber, SearchCursor after)
+            throws IOException {
+        log.debug( "Grouped search for {}", descr );
+
+        // With a cursor every page is a fresh top-pageSize; without one we still have to rank the skipped pages
+        int skipRecords = after != null || pageNumber <= 1 ? 0 : (pageNumber-1)*pageSize;
+        if ( skipRecords + pageSize > MAX_GROUP_WINDOW ) {
+            throw new IllegalArgumentException( "Page " + pageNumber + " is too deep, continue with the cursor instead" );
+        }
 
-        int skipRecords = pageNumber<=1? 0: (pageNumber-1)*pageSize;
+        final IndexingContext context = generation.getContext();
+        final IndexSearcher indexSearcher = context.acquireIndexSearcher();
+        try {
+            // Pass 1: rank GAs by score, keeping only the groups up to the requested page
+            long stageStart = System.nanoTime();
+            Set<String> returned = after != null && scoresVaryInGroup
+                    ? TopGroupsCollector.returnedGroups(indexSearcher, q, after) : Collections.emptySet();
+            TopGroupsCollector topGroups = parallelGroupSearch.topGroups(indexSearcher, q, skipRecords + pageSize,
+                    after, returned);
+            List<TopGroupsCollector.GroupHit> pageGroups = topGroups.topGroups().stream()
+                    .skip(skipRecords).collect(Collectors.toList());
+            stageStart = searchMetrics.record(SearchMetrics.Stage.SEARCH, stageStart);
+            log.debug( "Total individual hits: {}", topGroups.getTotalHits() );
+
+            // Pass 2: load the versions of just the groups on this page
+            Map<String, NavigableMap<Version, Integer>> matched = loadVersions(indexSearcher, q, pageGroups);
+            Map<String, NavigableMap<Version, Integer>> groups = listedQuery == null ? matched
+                    : listMatchingVersions(matched, loadVersions(indexSearcher, listedQuery, pageGroups));
+            stageStart = searchMetrics.record(SearchMetrics.Stage.GROUP, stageStart);
+
+            List<JavaFindArtifact> artifacts = new ArrayList<>(pageGroups.size());
+            for ( TopGroupsCollector.GroupHit group : pageGroups ) {
+                NavigableMap<Version, Integer> versions = groups.get(group.getGroupKey());
+                if ( versions != null && !versions.isEmpty() ) {
+                    artifacts.add(toArtifact(context, indexSearcher, versions, 0, maxVersions));
+                }
+            }
+            searchMetrics.record(SearchMetrics.Stage.MAP, stageStart);
 
-        List<JavaFindArtifact> artifacts = response.getResults().values().stream().skip(skipRecords).limit(pageSize)
-                .map(ai -> new JavaFindArtifact(ai)).collect(Collectors.toList());
-        return new SearchResult(artifacts, response.getReturnedHitsCount());
+            String nextCursor = null;
+            if ( pageGroups.size() == pageSize ) {
+                TopGroupsCollector.GroupHit last = pageGroups.get(pageGroups.size() - 1);
+                nextCursor = new SearchCursor(last.getScore(), last.getGroupKey()).encode();
+            }
+            return new SearchResult(artifacts, topGroups.getTotalHits(), nextCursor);
+        } finally {
+            context.releaseIndexSearcher(indexSearcher);
+        }
     }
 
-    /*public byte[] getFileBytes(JavaFindArtifact artifact) {
+    /**
+     * A page of the versions of one GA's sources, latest first.
+     *
+     * @throws FileNotFoundException if the GA has no sources in the index
+     */
+    public JavaFindArtifact listVersions(String groupId, String artifactId, int offset, int limit) throws IOException {
+        if ( offset < 0 || limit <= 0 ) {
+            throw new IllegalArgumentException( "Invalid version range " + offset + "+" + limit );
+        }
+        Query gaQuery = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(ArtifactInfo.GROUP_ID, groupId)), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(ArtifactInfo.ARTIFACT_ID, artifactId)), BooleanClause.Occur.FILTER)
+                .add(sourcesFilter.asQuery(), BooleanClause.Occur.FILTER)
+                .build();
+        String groupKey = groupId + ArtifactInfo.FS + artifactId;
+
+        final IndexGeneration generation = acquireGeneration();
+        final IndexingContext context = generation.getContext();
+        final IndexSearcher indexSearcher = context.acquireIndexSearcher();
         try {
-            String urlString = artifact.toUrlPath(centralContext);
-            URL url = new URL(urlString);
-            return IOUtils.toByteArray(url.openStream());
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+            Map<String, NavigableMap<Version, Integer>> groups = new HashMap<>();
+            groups.put(groupKey, new TreeMap<>(Comparator.reverseOrder()));
+            collectVersions(indexSearcher, gaQuery, groups);
+            NavigableMap<Version, Integer> versions = groups.get(groupKey);
+            if ( versions.isEmpty() ) {
+                throw new FileNotFoundException( groupId + ":" + artifactId );
+            }
+            return toArtifact(context, indexSearcher, versions, offset, limit);
+        } finally {
+            context.releaseIndexSearcher(indexSearcher);
+            releaseGeneration(generation);
         }
-        return null;
-    }*/
+    }
+
+    /**
+     * Only the latest version's document is loaded in full, for the name and description; the listed versions are
+     * the index's own strings and the paths of all of them are one template.
+     *
+     * @param versions a GA's versions, latest first, each to the document it was read from
+     */
+    public static JavaFindArtifact toArtifact(IndexingContext context, IndexSearcher indexSearcher,
+                                               NavigableMap<Version, Integer> versions, int offset, int limit)
+            throws IOException {
+        ArtifactInfo latest = IndexUtils.constructArtifactInfo(indexSearcher.doc(versions.firstEntry().getValue()), context);
+        List<String> listed = versions.keySet().stream()
+                .skip(offset).limit(limit).map(Version::toString).collect(Collectors.toList());
+        return new JavaFindArtifact(latest, listed, versions.size());
+    }
 
-    public byte[] getFileBytes(String relFilepath) {
+    private static Map<String, NavigableMap<Version, Integer>> listMatchingVersions(
+            Map<String, NavigableMap<Version, Integer>> matched, Map<String, NavigableMap<Version, Integer>> listed) {
+        listed.forEach((key, versions) -> versions.keySet().retainAll(matched.get(key).keySet()));
+        return listed;
+    }
+
+    /**
+     * The versions of the page's groups that match {@code q}, each to the document it was read from.
+     */
+    private Map<String, NavigableMap<Version, Integer>> loadVersions(IndexSearcher indexSearcher, Query q,
+                                                                     List<TopGroupsCollector.GroupHit> pageGroups)
+            throws IOException {
+        final Map<String, NavigableMap<Version, Integer>> groups = new HashMap<>();
+        if ( pageGroups.isEmpty() ) {
+            return groups;
+        }
+
+        BooleanQuery.Builder gaFilter = new BooleanQuery.Builder();
+        for ( TopGroupsCollector.GroupHit group : pageGroups ) {
+            gaFilter.add(new BooleanQuery.Builder()
+                    .add(new TermQuery(new Term(ArtifactInfo.GROUP_ID, group.getGroupId())), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(ArtifactInfo.ARTIFACT_ID, group.getArtifactId())), BooleanClause.Occur.MUST)
+                    .build(), BooleanClause.Occur.SHOULD);
+            groups.put(group.getGroupKey(), new TreeMap<>(Comparator.reverseOrder()));
+        }
+        Query pageQuery = new BooleanQuery.Builder()
+                .add(q, BooleanClause.Occur.MUST)
+                .add(gaFilter.build(), BooleanClause.Occur.FILTER)
+                .build();
+        collectVersions(indexSearcher, pageQuery, groups);
+        return groups;
+    }
+
+    private static void collectVersions(IndexSearcher indexSearcher, Query q,
+                                        Map<String, NavigableMap<Version, Integer>> groups) throws IOException {
+        indexSearcher.search(q, new SimpleCollector() {
+            private final TopGroupsCollector.UinfoVisitor uinfo = new TopGroupsCollector.UinfoVisitor();
+            private LeafReader reader;
+            private int docBase;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) {
+                reader = context.reader();
+                docBase = context.docBase;
+            }
+
+            @Override
+            public void collect(int doc) throws IOException {
+                // groupId|artifactId|version|classifier|extension, without loading the rest of the document
+                String[] parts = StringUtils.split(uinfo.read(reader, doc), ArtifactInfo.FS);
+                if ( parts.length < 3 ) {
+                    return;
+                }
+                NavigableMap<Version, Integer> versions = groups.get(parts[0] + ArtifactInfo.FS + parts[1]);
+                if ( versions != null ) {
+                    versions.putIfAbsent(parseVersion(parts[2]), docBase + doc);
+                }
+            }
+
+            @Override
+            public boolean needsScores() {
+                return false;
+            }
+        });
+    }
+
+    private static Version parseVersion(String version) {
         try {
-            String urlString = relPathToUrl(relFilepath);
+            return VERSION_SCHEME.parseVersion( version );
+        } catch ( InvalidVersionSpecificationException e ) {
+            // only version ranges are rejected
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /*public byte[] getFileBytes(JavaFindArtifact artifact) {
+        try {
+            String urlString = artifact.toUrlPath(centralContext);
             URL url = new URL(urlString);
             return IOUtils.toByteArray(url.openStream());
         } catch (MalformedURLException e) {
@@ -330,15 +767,22 @@ public class SearchService {
             e.printStackTrace();
         }
         return null;
-    }
+    }*/
 
     public String searchAndDump(Indexer nexusIndexer, String descr, Query q) throws IOException {
 
-        System.out.println( "Searching for " + descr );
+        log.debug( "Searching for {}", descr );
 
-        FlatSearchRequest fsr = new FlatSearchRequest( q, centralContext );
-        fsr.setCount(10);
-        FlatSearchResponse response = nexusIndexer.searchFlat(fsr);
+        IndexGeneration generation = acquireGeneration();
+        IndexingContext centralContext = generation.getContext();
+        FlatSearchResponse response;
+        try {
+            FlatSearchRequest fsr = new FlatSearchRequest( q, centralContext );
+            fsr.setCount(10);
+            response = nexusIndexer.searchFlat(fsr);
+        } finally {
+            releaseGeneration(generation);
+        }
 
         String output = "RESULTS<br/>\n=======\n<br/>";
         for ( ArtifactInfo ai : response.getResults() )
@@ -351,15 +795,53 @@ public class SearchService {
             output += ( ai.toString() +" ?"+ai.getSourcesExists() +" - "+urlpath) + "\n<br/>";
         }
 
-        System.out.println( "------" );
-        System.out.println( "Total: " + response.getTotalHitsCount() );
-        System.out.println();
+        log.debug( "Total: {}", response.getTotalHitsCount() );
         return output;
     }
 
-    private String relPathToUrl(String relFilepath) {
+    public String relPathToUrl(String relFilepath) {
+        return repositoryUrl + "/" + toCanonicalRelPath(relFilepath);
+    }
+
+    /**
+     * @param repository the repository id a search hit came from, {@code null} for central
+     */
+    public String relPathToUrl(String repository, String relFilepath) {
+        return repositoryUrl(repository) + "/" + toCanonicalRelPath(relFilepath);
+    }
+
+    /**
+     * @throws IllegalArgumentException for a repository that is not searched
+     */
+    public String repositoryUrl(String repository) {
+        if ( repository == null || repository.equals( CENTRAL_REPOSITORY ) ) {
+            return repositoryUrl;
+        }
+        IndexGeneration mirror = mirrors.get( repository );
+        if ( mirror == null ) {
+            throw new IllegalArgumentException( "Unknown repository " + repository );
+        }
+        return mirror.getContext().getRepositoryUrl();
+    }
+
+    /**
+     * Re-renders a client supplied M2 path from its GAV, which also rules out anything that is not an artifact path.
+     */
+    public String toCanonicalRelPath(String relFilepath) {
         GavCalculator gavCalculator = new M2GavCalculator();
         Gav gav = gavCalculator.pathToGav(relFilepath);
-        return centralContext.getRepositoryUrl() + centralContext.getGavCalculator().gavToPath(gav);
+        if ( gav == null ) {
+            throw new IllegalArgumentException( "Not a Maven 2 artifact path: " + relFilepath );
+        }
+        return gavCalculator.gavToPath(gav).substring(1);
+    }
+
+    /**
+     * The index is still being opened in the background; the request can be retried shortly.
+     */
+    public static class IndexNotReadyException extends IllegalStateException {
+        public IndexNotReadyException() {
+            super( "The index is still initializing" );
+        }
     }
 }
@@ -0,0 +1,294 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.maven.index.artifact.Gav;
+import org.apache.maven.index.artifact.M2GavCalculator;
+import org.elvisdsouza.javafind.domain.SymbolHit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A secondary index of the classes and methods declared in the sources jars that were downloaded, answering
+ * "which artifact and version declares X" without fetching anything. Jars are picked up as they are committed to
+ * the {@link ArtifactCache} and indexed in the background, one at a time, each replacing what an earlier copy of
+ * the same jar contributed. New symbols are searchable as soon as their jar is indexed.
+ */
+@Slf4j
+@Component
+public class SourceSymbolIndex implements MeterBinder {
+
+    private static final String SOURCES_SUFFIX = "-sources.jar";
+    private static final String JAVA_SUFFIX = ".java";
+
+    private static final String JAR = "jar";
+    private static final String GROUP_ID = "g";
+    private static final String ARTIFACT_ID = "a";
+    private static final String VERSION = "v";
+    private static final String KIND = "kind";
+    private static final String CLASS_NAME = "class";
+    private static final String NAME = "name";
+    // lowercased, for matching
+    private static final String NAME_LC = "name_lc";
+    private static final String CLASS_LC = "class_lc";
+    private static final String SIMPLE_CLASS_LC = "simple_class_lc";
+
+    private final ArtifactCache artifactCache;
+    private final boolean enabled;
+    private final File indexDir;
+    private final long maxFileBytes;
+    private final ThreadPoolExecutor executor;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    private final LongAdder jars = new LongAdder();
+    private final LongAdder symbols = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder ingestNanos = new LongAdder();
+
+    public SourceSymbolIndex(ArtifactCache artifactCache,
+                             @Value("${javafind.symbols.enabled:true}") boolean enabled,
+                             @Value("${javafind.symbols.dir:${user.home}/.javafind/symbol-index}") File indexDir,
+                             @Value("${javafind.symbols.queue-size:1000}") int queueSize,
+                             @Value("${javafind.symbols.max-file-bytes:1048576}") long maxFileBytes) {
+        this.artifactCache = artifactCache;
+        this.enabled = enabled && artifactCache.isEnabled();
+        this.indexDir = indexDir;
+        this.maxFileBytes = maxFileBytes;
+        // one writer thread; a jar that does not fit the queue is left out, it is indexed again if downloaded again
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread t = new Thread(r, "symbol-index");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = FSDirectory.open(indexDir.toPath());
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, true, null);
+        artifactCache.addCommitListener(this::submit);
+        log.info("Symbol index at {} has {} symbols", indexDir, writer.numDocs());
+    }
+
+    private void submit(ArtifactCache.CachedArtifact artifact) {
+        if (!artifact.getRelPath().endsWith(SOURCES_SUFFIX)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    ingest(artifact.getRelPath(), artifact.getFile());
+                } catch (IOException | RuntimeException e) {
+                    failed.increment();
+                    log.warn("Could not index the symbols of {}", artifact.getRelPath(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Indexes the declarations of one sources jar, replacing those of an earlier copy of it.
+     */
+    private void ingest(String relPath, Path jar) throws IOException {
+        Gav gav = new M2GavCalculator().pathToGav(relPath);
+        if (gav == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Document> docs = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(JAVA_SUFFIX) || entry.getSize() > maxFileBytes) {
+                    continue;
+                }
+                String source;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                for (JavaSymbolScanner.Symbol symbol : JavaSymbolScanner.scan(source)) {
+                    docs.add(toDocument(relPath, gav, symbol));
+                }
+            }
+        }
+
+        writer.updateDocuments(new Term(JAR, relPath), docs);
+        searcherManager.maybeRefresh();
+        if (executor.getQueue().isEmpty()) {
+            // durable once the backlog is through, rather than per jar
+            writer.commit();
+        }
+
+        ingestNanos.add(System.nanoTime() - start);
+        jars.increment();
+        symbols.add(docs.size());
+        log.debug("Indexed {} symbols of {}", docs.size(), relPath);
+    }
+
+    private static Document toDocument(String relPath, Gav gav, JavaSymbolScanner.Symbol symbol) {
+        String className = symbol.getClassName();
+        String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
+        Document doc = new Document();
+        doc.add(new StringField(JAR, relPath, Field.Store.YES));
+        doc.add(new StoredField(GROUP_ID, gav.getGroupId()));
+        doc.add(new StoredField(ARTIFACT_ID, gav.getArtifactId()));
+        doc.add(new StoredField(VERSION, gav.getVersion()));
+        doc.add(new StringField(KIND, symbol.getKind(), Field.Store.YES));
+        doc.add(new StoredField(CLASS_NAME, className));
+        doc.add(new StoredField(NAME, symbol.getName()));
+        doc.add(new StringField(NAME_LC, symbol.getName().toLowerCase(Locale.ROOT), Field.Store.NO));
+        doc.add(new StringField(CLASS_LC, className.toLowerCase(Locale.ROOT), Field.Store.NO));
+        doc.add(new StringField(SIMPLE_CLASS_LC, simpleClassName.toLowerCase(Locale.ROOT), Field.Store.NO));
+        return doc;
+    }
+
+    /**
+     * Case-insensitive lookup of a declared name: {@code parse}, a prefix such as {@code pars*}, or qualified by
+     * its class as in {@code Parser.parse} or {@code com.example.Parser.parse}.
+     *
+     * @param kind {@code class}, {@code method} or {@code null} for both
+     * @throws IllegalArgumentException for an empty query
+     */
+    public List<SymbolHit> find(String query, String kind, int limit) throws IOException {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || q.equals("*")) {
+            throw new IllegalArgumentException("Empty symbol query");
+        }
+        if (!enabled || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        BooleanQuery.Builder lookup = new BooleanQuery.Builder();
+        int dot = q.lastIndexOf('.');
+        String name = dot >= 0 ? q.substring(dot + 1) : q;
+        if (name.endsWith("*")) {
+            lookup.add(new PrefixQuery(new Term(NAME_LC, name.substring(0, name.length() - 1))), BooleanClause.Occur.FILTER);
+        } else {
+            lookup.add(new TermQuery(new Term(NAME_LC, name)), BooleanClause.Occur.FILTER);
+        }
+        if (dot >= 0) {
+            String owner = q.substring(0, dot);
+            lookup.add(new TermQuery(new Term(owner.indexOf('.') >= 0 ? CLASS_LC : SIMPLE_CLASS_LC, owner)),
+                    BooleanClause.Occur.FILTER);
+        }
+        if (kind != null) {
+            lookup.add(new TermQuery(new Term(KIND, kind.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+        }
+        Query built = lookup.build();
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            List<SymbolHit> hits = new ArrayList<>();
+            for (ScoreDoc scoreDoc : searcher.search(built, limit).scoreDocs) {
+                Document doc = searcher.doc(scoreDoc.doc);
+                hits.add(new SymbolHit(doc.get(GROUP_ID), doc.get(ARTIFACT_ID), doc.get(VERSION), doc.get(KIND),
+                        doc.get(CLASS_NAME), doc.get(NAME), doc.get(JAR)));
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        executor.shutdownNow();
+        if (writer == null) {
+            return;
+        }
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // ingested over the total time of this timer is the indexing throughput in symbols per second
+        FunctionTimer.builder("javafind.symbols.ingest", this, index -> index.jars.sum(),
+                index -> index.ingestNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time spent indexing sources jars").register(registry);
+        FunctionCounter.builder("javafind.symbols.ingested", symbols, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.symbols.failed", failed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.symbols.dropped", dropped, LongAdder::sum)
+                .description("Sources jars not indexed because the backlog was full").register(registry);
+        Gauge.builder("javafind.symbols.backlog", executor, e -> e.getQueue().size()).register(registry);
+        Gauge.builder("javafind.symbols.count", this, index -> index.writer == null ? 0 : index.writer.numDocs())
+                .register(registry);
+        Gauge.builder("javafind.symbols.index.size", this, SourceSymbolIndex::sizeInBytes)
+                .baseUnit("bytes").register(registry);
+    }
+
+    private double sizeInBytes() {
+        File[] files = indexDir.listFiles();
+        if (!enabled || files == null) {
+            return 0;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,240 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+import org.codehaus.plexus.util.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The "classifier is sources" restriction as a per-segment bitset. Segments never change once written, so a
+ * segment's bitset is built once, shared by every generation that still contains the segment (updates hard-link
+ * them), and dropped when the segment is closed. New generations are warmed before they are swapped in, so no
+ * search pays for building one.
+ */
+@Component
+public class SourcesFilter implements MeterBinder {
+
+    private static final Term SOURCES = new Term(MinimalArtifactInfoIndexCreator.FLD_CLASSIFIER.getKey(), "sources");
+
+    // keyed by segment core, which deletions do not change; live docs are applied by the searcher
+    private final ConcurrentMap<Object, SegmentBits> segments = new ConcurrentHashMap<>();
+    private final AtomicLong ramBytes = new AtomicLong();
+    private final LongAdder builds = new LongAdder();
+    private final Query query = new SourcesQuery();
+
+    /**
+     * A constant-score query matching the sources artifacts, meant to be added as a filter clause.
+     */
+    public Query asQuery() {
+        return query;
+    }
+
+    /**
+     * A constant-score query matching the artifacts whose version also has a sources artifact, such as the main jars
+     * class names are indexed on, meant to be added as a filter clause. It is checked document by document, only on
+     * those the other clauses matched: the version's sources UINFO is looked up in the term dictionary. A new
+     * instance per search, so that the query cache never sees it often enough to evaluate it for a whole segment.
+     */
+    public Query versionHasSourcesQuery() {
+        return new VersionHasSourcesQuery();
+    }
+
+    /**
+     * Builds the bitsets of every segment of the given context that does not have one yet.
+     */
+    public void warm(IndexingContext context) throws IOException {
+        IndexSearcher searcher = context.acquireIndexSearcher();
+        try {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                bitsFor(leaf.reader());
+            }
+        } finally {
+            context.releaseIndexSearcher(searcher);
+        }
+    }
+
+    private SegmentBits bitsFor(LeafReader reader) throws IOException {
+        Object key = reader.getCoreCacheKey();
+        SegmentBits cached = segments.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        FixedBitSet bits = new FixedBitSet(reader.maxDoc());
+        Terms terms = reader.terms(SOURCES.field());
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator();
+            if (termsEnum.seekExact(new BytesRef(SOURCES.text()))) {
+                PostingsEnum postings = termsEnum.postings(null, PostingsEnum.NONE);
+                for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                    bits.set(doc);
+                }
+            }
+        }
+
+        SegmentBits built = new SegmentBits(bits);
+        SegmentBits raced = segments.putIfAbsent(key, built);
+        if (raced != null) {
+            return raced;
+        }
+        builds.increment();
+        ramBytes.addAndGet(bits.ramBytesUsed());
+        reader.addCoreClosedListener(closedKey -> {
+            SegmentBits removed = segments.remove(closedKey);
+            if (removed != null) {
+                ramBytes.addAndGet(-removed.bits.ramBytesUsed());
+            }
+        });
+        return built;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("javafind.search.sources-filter.size", ramBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Memory held by the cached sources bitsets").register(registry);
+        Gauge.builder("javafind.search.sources-filter.segments", segments, ConcurrentMap::size).register(registry);
+        FunctionCounter.builder("javafind.search.sources-filter.builds", builds, LongAdder::sum).register(registry);
+    }
+
+    private static class SegmentBits {
+        final FixedBitSet bits;
+        final int cardinality;
+
+        SegmentBits(FixedBitSet bits) {
+            this.bits = bits;
+            this.cardinality = bits.cardinality();
+        }
+    }
+
+    /**
+     * {@code groupId|artifactId|version|sources|jar} for the UINFO of any artifact of the version.
+     */
+    static String sourcesUinfo(String uinfo) {
+        if (uinfo == null) {
+            return null;
+        }
+        String[] parts = StringUtils.split(uinfo, ArtifactInfo.FS);
+        if (parts.length < 3) {
+            return null;
+        }
+        return parts[0] + ArtifactInfo.FS + parts[1] + ArtifactInfo.FS + parts[2] + ArtifactInfo.FS
+                + SOURCES.text() + ArtifactInfo.FS + "jar";
+    }
+
+    private static class VersionHasSourcesQuery extends Query {
+
+        @Override
+        public Weight createWeight(IndexSearcher searcher, boolean needsScores) {
+            IndexReader topReader = searcher.getIndexReader();
+            return new ConstantScoreWeight(this) {
+                @Override
+                public Scorer scorer(LeafReaderContext context) throws IOException {
+                    Terms uinfos = MultiFields.getTerms(topReader, ArtifactInfo.UINFO);
+                    if (uinfos == null) {
+                        return null;
+                    }
+                    // per scorer, so per thread
+                    TermsEnum termsEnum = uinfos.iterator();
+                    Bits liveDocs = MultiFields.getLiveDocs(topReader);
+                    LeafReader reader = context.reader();
+                    TopGroupsCollector.UinfoVisitor uinfo = new TopGroupsCollector.UinfoVisitor();
+                    DocIdSetIterator approximation = DocIdSetIterator.all(reader.maxDoc());
+                    return new ConstantScoreScorer(this, score(), new TwoPhaseIterator(approximation) {
+                        private PostingsEnum postings;
+
+                        @Override
+                        public boolean matches() throws IOException {
+                            String sources = sourcesUinfo(uinfo.read(reader, approximation.docID()));
+                            if (sources == null || !termsEnum.seekExact(new BytesRef(sources))) {
+                                return false;
+                            }
+                            // the term outlives a replaced document until its segment is merged
+                            postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                            for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS;
+                                 doc = postings.nextDoc()) {
+                                if (liveDocs == null || liveDocs.get(doc)) {
+                                    return true;
+                                }
+                            }
+                            return false;
+                        }
+
+                        @Override
+                        public float matchCost() {
+                            // a stored field read and a term lookup
+                            return 1000;
+                        }
+                    });
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+
+        @Override
+        public String toString(String field) {
+            return "versionHasSources";
+        }
+    }
+
+    private class SourcesQuery extends Query {
+
+        @Override
+        public Weight createWeight(IndexSearcher searcher, boolean needsScores) {
+            return new ConstantScoreWeight(this) {
+                @Override
+                public Scorer scorer(LeafReaderContext context) throws IOException {
+                    SegmentBits segment = bitsFor(context.reader());
+                    if (segment.cardinality == 0) {
+                        return null;
+                    }
+                    return new ConstantScoreScorer(this, score(), new BitSetIterator(segment.bits, segment.cardinality));
+                }
+            };
+        }
+
+        @Override
+        public String toString(String field) {
+            return "sources:" + SOURCES;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.maven.index.ArtifactInfo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps only the best {@code maxGroups} GA groups of a query, ranked by their best hit's score.
+ * Memory is bounded by {@code maxGroups}, and the stored UINFO field is only read for hits that can still enter
+ * the queue, so non-competitive hits cost nothing beyond scoring.
+ * <p>
+ * A group scores as its best hit. With a {@link SearchCursor} on (score, key), hits at or before the cursor are
+ * skipped, which is enough when all hits of a group score the same: all versions of a GA carry the same
+ * groupId/artifactId text, so they do under artifact queries. Under class-name queries they do not, only the versions
+ * with the exact class are boosted, and a group already returned would come back through its weaker versions; for
+ * those the groups already returned are found first with {@link #returnedGroups} and excluded.
+ */
+public class TopGroupsCollector extends SimpleCollector {
+
+    // weakest group first: lowest score, then highest key
+    private static final Comparator<GroupHit> WEAKEST_FIRST = Comparator
+            .comparing((GroupHit g) -> g.score)
+            .thenComparing((GroupHit g) -> g.groupKey, Comparator.reverseOrder());
+
+    private final int maxGroups;
+    private final SearchCursor after;
+    private final Set<String> returned;
+    private final TreeSet<GroupHit> queue = new TreeSet<>(WEAKEST_FIRST);
+    private final Map<String, GroupHit> queued = new HashMap<>();
+    private final UinfoVisitor uinfoVisitor = new UinfoVisitor();
+
+    private LeafReader reader;
+    private Scorer scorer;
+    private int totalHits;
+
+    public TopGroupsCollector(int maxGroups, SearchCursor after) {
+        this(maxGroups, after, Collections.emptySet());
+    }
+
+    /**
+     * @param returned groups to leave out regardless of their score
+     */
+    public TopGroupsCollector(int maxGroups, SearchCursor after, Set<String> returned) {
+        this.maxGroups = maxGroups;
+        this.after = after;
+        this.returned = returned;
+    }
+
+    /**
+     * The groups of {@code q} with a hit at or before {@code after}: as a group scores as its best hit, exactly the
+     * groups returned up to the cursor.
+     */
+    public static Set<String> returnedGroups(IndexSearcher searcher, Query q, SearchCursor after) throws IOException {
+        Set<String> returned = new HashSet<>();
+        searcher.search(q, new SimpleCollector() {
+            private final UinfoVisitor uinfoVisitor = new UinfoVisitor();
+            private LeafReader reader;
+            private Scorer scorer;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) {
+                reader = context.reader();
+            }
+
+            @Override
+            public void setScorer(Scorer scorer) {
+                this.scorer = scorer;
+            }
+
+            @Override
+            public void collect(int doc) throws IOException {
+                float score = scorer.score();
+                if (score < after.getScore()) {
+                    return;
+                }
+                String groupKey = toGroupKey(uinfoVisitor.read(reader, doc));
+                if (groupKey != null && after.isBefore(score, groupKey)) {
+                    returned.add(groupKey);
+                }
+            }
+
+            @Override
+            public boolean needsScores() {
+                return true;
+            }
+        });
+        return returned;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) {
+        this.reader = context.reader();
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) {
+        this.scorer = scorer;
+    }
+
+    @Override
+    public boolean needsScores() {
+        return true;
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        totalHits++;
+        float score = scorer.score();
+
+        // cheap rejections first, before touching stored fields
+        if (after != null && score > after.getScore()) {
+            return;
+        }
+        if (queue.size() >= maxGroups && score < queue.first().score) {
+            return;
+        }
+
+        String groupKey = readGroupKey(doc);
+        if (groupKey == null || (after != null && after.isBefore(score, groupKey)) || returned.contains(groupKey)) {
+            return;
+        }
+        offer(groupKey, score);
+    }
+
+    /**
+     * Folds in the groups and hit count of a collector that saw a disjoint part of the index, such as one partition
+     * of a {@link ParallelGroupSearch}. A group seen by both keeps its best score.
+     */
+    public void merge(TopGroupsCollector other) {
+        totalHits += other.totalHits;
+        for (GroupHit hit : other.queue) {
+            offer(hit.groupKey, hit.score);
+        }
+    }
+
+    private void offer(String groupKey, float score) {
+        GroupHit existing = queued.get(groupKey);
+        if (existing != null) {
+            if (score > existing.score) {
+                queue.remove(existing);
+                existing.score = score;
+                queue.add(existing);
+            }
+            return;
+        }
+
+        GroupHit hit = new GroupHit(groupKey, score);
+        if (queue.size() >= maxGroups) {
+            if (WEAKEST_FIRST.compare(hit, queue.first()) <= 0) {
+                return;
+            }
+            queued.remove(queue.pollFirst().groupKey);
+        }
+        queue.add(hit);
+        queued.put(groupKey, hit);
+    }
+
+    private String readGroupKey(int doc) throws IOException {
+        return toGroupKey(uinfoVisitor.read(reader, doc));
+    }
+
+    /**
+     * UINFO is "groupId|artifactId|version|classifier|extension"; the GA key is its first two parts.
+     */
+    static String toGroupKey(String uinfo) {
+        if (uinfo == null) {
+            return null;
+        }
+        int first = uinfo.indexOf(ArtifactInfo.FS);
+        int second = first < 0 ? -1 : uinfo.indexOf(ArtifactInfo.FS, first + 1);
+        return second < 0 ? null : uinfo.substring(0, second);
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * The collected groups, best first.
+     */
+    public List<GroupHit> topGroups() {
+        return new ArrayList<>(queue.descendingSet());
+    }
+
+    public static class GroupHit {
+        private final String groupKey;
+        private float score;
+
+        GroupHit(String groupKey, float score) {
+            this.groupKey = groupKey;
+            this.score = score;
+        }
+
+        public String getGroupKey() {
+            return groupKey;
+        }
+
+        public float getScore() {
+            return score;
+        }
+
+        public String getGroupId() {
+            return groupKey.substring(0, groupKey.indexOf(ArtifactInfo.FS));
+        }
+
+        public String getArtifactId() {
+            return groupKey.substring(groupKey.indexOf(ArtifactInfo.FS) + 1);
+        }
+    }
+
+    /**
+     * Loads just the UINFO field of a document.
+     */
+    static class UinfoVisitor extends StoredFieldVisitor {
+        private String uinfo;
+
+        String read(LeafReader reader, int doc) throws IOException {
+            uinfo = null;
+            reader.document(doc, this);
+            return uinfo;
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            if (uinfo != null) {
+                return Status.STOP;
+            }
+            return ArtifactInfo.UINFO.equals(fieldInfo.name) ? Status.YES : Status.NO;
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, byte[] value) {
+            uinfo = new String(value, StandardCharsets.UTF_8);
+        }
+    }
+}
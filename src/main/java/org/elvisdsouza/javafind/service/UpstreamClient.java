@@ -0,0 +1,258 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The HTTP client for artifact fetches from upstream repositories: one shared {@link HttpClient}, so connections are
+ * kept alive and pooled, speaking HTTP/2 where the repository does. GETs that fail before any body byte was handed
+ * out (connect errors, no headers within the response timeout, 429 and 5xx) are retried a bounded number of times
+ * with jittered exponential backoff. The body has its own idle timeout, since the JDK client only times out waiting
+ * for the headers.
+ */
+@Slf4j
+@Component
+public class UpstreamClient implements MeterBinder {
+
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final ScheduledExecutorService watchdog;
+    private final Duration responseTimeout;
+    private final long readTimeoutMillis;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public UpstreamClient(@Value("${javafind.upstream.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                          @Value("${javafind.upstream.response-timeout-ms:30000}") long responseTimeoutMillis,
+                          @Value("${javafind.upstream.read-timeout-ms:30000}") long readTimeoutMillis,
+                          @Value("${javafind.upstream.max-retries:2}") int maxRetries,
+                          @Value("${javafind.upstream.retry-backoff-ms:200}") long retryBackoffMillis,
+                          @Value("${javafind.upstream.pool-size:64}") int poolSize,
+                          @Value("${javafind.upstream.http2:true}") boolean http2) {
+        // read once by the JDK when its first client is built; an explicit -D wins
+        if (System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+            System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(poolSize));
+        }
+        this.responseTimeout = Duration.ofMillis(responseTimeoutMillis);
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.clientExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "upstream-http-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "upstream-read-timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(clientExecutor)
+                .build();
+    }
+
+    /**
+     * GETs {@code url}, optionally a byte range of it ({@code "bytes=0-99"}), and returns once the headers of a 200
+     * or 206 answer are in. The caller must close the body.
+     *
+     * @throws FileNotFoundException when upstream does not have it
+     * @throws UpstreamException     for any other failure, once retries are used up
+     */
+    public Response get(String url, String range) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(responseTimeout).GET();
+        if (range != null) {
+            request.header("Range", range);
+        }
+        requests.increment();
+        for (int attempt = 0; ; attempt++) {
+            UpstreamException failure;
+            try {
+                HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+                int status = response.statusCode();
+                if (status == 200 || status == 206) {
+                    return new Response(status, response.headers().firstValueAsLong("Content-Length").orElse(-1),
+                            response.headers().firstValue("Content-Range").orElse(null), watch(response.body()));
+                }
+                response.body().close();
+                if (status == 404 || status == 410) {
+                    throw new FileNotFoundException(url);
+                }
+                failure = new UpstreamException("Upstream returned " + status + " for " + url, status, false, null);
+                if (status != 429 && status < 500) {
+                    failures.increment();
+                    throw failure;
+                }
+            } catch (HttpTimeoutException e) {
+                failure = new UpstreamException("Upstream timed out for " + url, 0, true, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted fetching " + url);
+            } catch (FileNotFoundException | UpstreamException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = new UpstreamException("Cannot fetch " + url + ": " + e, 0, false, e);
+            }
+
+            if (attempt >= maxRetries) {
+                failures.increment();
+                throw failure;
+            }
+            retries.increment();
+            long backoff = retryBackoffMillis << attempt;
+            log.debug("Retrying {} in {} ms: {}", url, backoff, failure.getMessage());
+            try {
+                Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted fetching " + url);
+            }
+        }
+    }
+
+    private InputStream watch(InputStream body) {
+        return readTimeoutMillis > 0 ? new IdleTimeoutInputStream(body) : body;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        clientExecutor.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("javafind.upstream.requests", requests, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.upstream.retries", retries, LongAdder::sum).register(registry);
+        FunctionCounter.builder("javafind.upstream.failures", failures, LongAdder::sum)
+                .description("Upstream GETs that failed after their retries").register(registry);
+    }
+
+    @Getter
+    public static class Response {
+        private final int status;
+        // -1 when unknown
+        private final long contentLength;
+        // only set for 206
+        private final String contentRange;
+        private final InputStream body;
+
+        Response(int status, long contentLength, String contentRange, InputStream body) {
+            this.status = status;
+            this.contentLength = contentLength;
+            this.contentRange = contentRange;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Upstream could not be reached, timed out or answered with an error status.
+     */
+    @Getter
+    public static class UpstreamException extends IOException {
+        // 0 when there was no answer
+        private final int status;
+        private final boolean timeout;
+
+        public UpstreamException(String message, int status, boolean timeout, Throwable cause) {
+            super(message, cause);
+            this.status = status;
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * Closes the body when a read has been waiting longer than the read timeout, which ends the blocked read, and
+     * turns that into a {@link SocketTimeoutException} instead of an early end of stream.
+     */
+    private class IdleTimeoutInputStream extends FilterInputStream {
+        private final ScheduledFuture<?> check;
+        private volatile long readingSince = -1;
+        private volatile boolean timedOut;
+
+        IdleTimeoutInputStream(InputStream in) {
+            super(in);
+            long period = Math.max(readTimeoutMillis / 4, 10);
+            this.check = watchdog.scheduleAtFixedRate(this::checkIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        private void checkIdle() {
+            long since = readingSince;
+            if (since >= 0 && System.nanoTime() - since > TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis)) {
+                timedOut = true;
+                try {
+                    close();
+                } catch (IOException e) {
+                    log.debug("Closing a stalled upstream body failed", e);
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            readingSince = System.nanoTime();
+            try {
+                int n = super.read(b, off, len);
+                if (timedOut) {
+                    throw new SocketTimeoutException("No data from upstream for " + readTimeoutMillis + " ms");
+                }
+                return n;
+            } catch (IOException e) {
+                if (timedOut) {
+                    throw new SocketTimeoutException("No data from upstream for " + readTimeoutMillis + " ms");
+                }
+                throw e;
+            } finally {
+                readingSince = -1;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            check.cancel(false);
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.maven.index.context.NexusAnalyzer;
+import org.apache.maven.index.creator.MinimalArtifactInfoIndexCreator;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Turns the search box input into a groupId/artifactId query. Field keys and patterns are resolved once and the
+ * analyzer is shared; only the parser, which is not thread-safe, is kept per thread.
+ */
+@Component
+public class UserQueryBuilder {
+
+    // Copied from DefaultQueryCreator, precompiled
+    private static final Pattern SEPARATOR = Pattern.compile("[.\\-_/]");
+    private static final Pattern LONE_WILDCARD = Pattern.compile(" \\* ");
+    private static final Pattern LEADING_WILDCARD = Pattern.compile("^\\* ");
+    private static final Pattern TRAILING_WILDCARD = Pattern.compile(" \\*$");
+
+    // the tokenized (scored) groupId and artifactId fields
+    private final String[] fields = {
+            MinimalArtifactInfoIndexCreator.FLD_GROUP_ID.getKey(), MinimalArtifactInfoIndexCreator.FLD_ARTIFACT_ID.getKey()
+    };
+    private final NexusAnalyzer analyzer = new NexusAnalyzer();
+    private final ThreadLocal<QueryParser> parsers = ThreadLocal.withInitial(() -> {
+        QueryParser parser = new MultiFieldQueryParser(fields, analyzer);
+        parser.setDefaultOperator(QueryParser.AND_OPERATOR);
+        return parser;
+    });
+
+    /**
+     * @throws IllegalArgumentException if the input does not parse
+     */
+    public Query build(String userQueryString) {
+        String queryString = normalize(userQueryString);
+        QueryParser parser = parsers.get();
+        try {
+            BooleanQuery.Builder query = new BooleanQuery.Builder()
+                    .add(parser.parse(queryString), BooleanClause.Occur.SHOULD);
+            if (queryString.indexOf(' ') >= 0) {
+                query.add(parser.parse("\"" + queryString + "\""), BooleanClause.Occur.SHOULD);
+            }
+            return query.build();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Cannot parse query '" + userQueryString + "': " + e.getMessage(), e);
+        }
+    }
+
+    static String normalize(String userQueryString) {
+        String queryString = userQueryString;
+        if (SEPARATOR.matcher(queryString).find()) {
+            queryString = SEPARATOR.matcher(queryString.toLowerCase()).replaceAll(" ");
+            queryString = LONE_WILDCARD.matcher(queryString).replaceAll("");
+            queryString = LEADING_WILDCARD.matcher(queryString).replaceAll("");
+            queryString = TRAILING_WILDCARD.matcher(queryString).replaceAll("");
+        }
+        if (!queryString.endsWith("*") && !queryString.endsWith(" ")) {
+            queryString += "*";
+        }
+        return queryString;
+    }
+}
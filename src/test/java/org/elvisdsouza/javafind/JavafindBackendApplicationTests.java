@@ -3,7 +3,13 @@ package org.elvisdsouza.javafind;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+		"javafind.index.update.enabled=false",
+		"javafind.index.dir=target/test-index/central-index",
+		"javafind.index.cache-dir=target/test-index/central-cache",
+		"javafind.symbols.dir=target/test-index/symbol-index",
+		"javafind.popularity.file=target/test-index/popular-queries.txt"
+})
 class JavafindBackendApplicationTests {
 
 	@Test
@@ -0,0 +1,144 @@
+package org.elvisdsouza.javafind.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elvisdsouza.javafind.service.ArtifactCache;
+import org.elvisdsouza.javafind.service.ArtifactPrefetcher;
+import org.elvisdsouza.javafind.service.DownloadLimiter;
+import org.elvisdsouza.javafind.service.DownloadMetrics;
+import org.elvisdsouza.javafind.service.DownloadService;
+import org.elvisdsouza.javafind.service.InFlightDownloads;
+import org.elvisdsouza.javafind.service.SearchService;
+import org.elvisdsouza.javafind.service.TestUpstream;
+import org.elvisdsouza.javafind.service.UpstreamClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.elvisdsouza.javafind.service.TestUpstream.JAR;
+
+class SearchControllerTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestUpstream upstream;
+    private UpstreamClient upstreamClient;
+    private InFlightDownloads inFlightDownloads;
+    private ArtifactPrefetcher prefetcher;
+    private DownloadLimiter limiter;
+    private final SearchController controller = new SearchController();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new TestUpstream();
+        upstream.releaseBody();
+        ArtifactCache artifactCache = new ArtifactCache(true, workDir.resolve("cache").toString(), Long.MAX_VALUE);
+        artifactCache.load();
+        upstreamClient = new UpstreamClient(1000, 10000, 10000, 0, 10, 8, false);
+        DownloadMetrics metrics = new DownloadMetrics(new SimpleMeterRegistry());
+        inFlightDownloads = new InFlightDownloads(artifactCache, metrics, upstreamClient, 4096, 4);
+        SearchService searchService = upstream.newSearchService(workDir);
+        prefetcher = new ArtifactPrefetcher(searchService, artifactCache, inFlightDownloads,
+                new SimpleMeterRegistry(), false, 3, 1, 1, 0, 100);
+        limiter = new DownloadLimiter(2, 2, 7);
+        ReflectionTestUtils.setField(controller, "downloadService", new DownloadService(searchService,
+                artifactCache, inFlightDownloads, metrics, limiter, upstreamClient, prefetcher, 4096));
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+        prefetcher.shutdown();
+        inFlightDownloads.shutdown();
+        upstreamClient.shutdown();
+        upstream.close();
+    }
+
+    @Test
+    void jarIsStreamedWithItsLengthAndName() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = getFile(null, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(upstream.getPayload().length);
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("demo-1.0-sources.jar");
+        assertThat(body(response)).isEqualTo(upstream.getPayload());
+    }
+
+    @Test
+    void rangeIsForwardedUpstream() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = getFile("bytes=10-19", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE))
+                .isEqualTo("bytes 10-19/" + upstream.getPayload().length);
+        assertThat(body(response)).isEqualTo(Arrays.copyOfRange(upstream.getPayload(), 10, 20));
+        assertThat(rangeNotSatisfiable("bytes=" + upstream.getPayload().length + "-"))
+                .isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(upstream.getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void cachedJarIsRevalidatedByItsSha1() throws Exception {
+        body(getFile(null, null));
+        ResponseEntity<StreamingResponseBody> cached = getFile(null, null);
+        String etag = cached.getHeaders().getETag();
+        assertThat(etag).matches("\"[0-9a-f]{40}\"");
+        assertThat(body(cached)).isEqualTo(upstream.getPayload());
+
+        ResponseEntity<StreamingResponseBody> notModified = getFile(null, "\"other\", W/" + etag);
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(notModified.getBody()).isNull();
+        ResponseEntity<StreamingResponseBody> changed = getFile(null, "\"other\"");
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        body(changed);
+        assertThat(upstream.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void rangesOfACachedJarAreServedLocally() throws Exception {
+        body(getFile(null, null));
+        int size = upstream.getPayload().length;
+
+        ResponseEntity<StreamingResponseBody> tail = getFile("bytes=-100", null);
+        assertThat(tail.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(tail.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE))
+                .isEqualTo("bytes " + (size - 100) + "-" + (size - 1) + "/" + size);
+        assertThat(tail.getHeaders().getContentLength()).isEqualTo(100);
+        assertThat(body(tail)).isEqualTo(Arrays.copyOfRange(upstream.getPayload(), size - 100, size));
+        assertThat(rangeNotSatisfiable("bytes=" + size + "-")).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(upstream.getHits()).isEqualTo(1);
+    }
+
+    private ResponseEntity<StreamingResponseBody> getFile(String range, String ifNoneMatch) throws Exception {
+        return controller.getFile(JAR, null, range, ifNoneMatch).get(10, TimeUnit.SECONDS);
+    }
+
+    private HttpStatus rangeNotSatisfiable(String range) throws Exception {
+        Throwable failure = catchThrowable(() -> getFile(range, null));
+        assertThat(failure).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DownloadService.RangeNotSatisfiableException.class);
+        return controller.rangeNotSatisfiable((DownloadService.RangeNotSatisfiableException) failure.getCause())
+                .getStatusCode();
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+}
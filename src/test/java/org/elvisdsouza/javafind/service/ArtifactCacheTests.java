@@ -0,0 +1,81 @@
+package org.elvisdsouza.javafind.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArtifactCacheTests {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void leastRecentlyUsedIsEvictedPastTheCap() throws Exception {
+        ArtifactCache cache = new ArtifactCache(true, workDir.toString(), 25);
+        cache.load();
+        ArtifactCache.CachedArtifact a = put(cache, "org/example/a/1.0/a-1.0.jar", new byte[10]);
+        ArtifactCache.CachedArtifact b = put(cache, "org/example/b/1.0/b-1.0.jar", new byte[10]);
+        assertThat(cache.lookup(a.getRelPath())).isNotNull();
+        put(cache, "org/example/c/1.0/c-1.0.jar", new byte[10]);
+
+        assertThat(cache.lookup(b.getRelPath())).isNull();
+        assertThat(b.getFile()).doesNotExist();
+        assertThat(b.getFile().resolveSibling("b-1.0.jar.sha1")).doesNotExist();
+        assertThat(cache.contains(a.getRelPath())).isTrue();
+        assertThat(cache.contains("org/example/c/1.0/c-1.0.jar")).isTrue();
+    }
+
+    @Test
+    void pathsOutsideTheRootAreRefused() throws Exception {
+        Path root = workDir.resolve("cache");
+        ArtifactCache cache = new ArtifactCache(true, root.toString(), Long.MAX_VALUE);
+        cache.load();
+
+        for (String relPath : new String[]{"../escape.jar", "org/../../escape.jar", ".tmp/hidden.jar"}) {
+            ArtifactCache.Writer writer = cache.newWriter(relPath);
+            writer.write(new byte[]{1}, 0, 1);
+            assertThatThrownBy(writer::commit).isInstanceOf(IllegalArgumentException.class);
+            assertThat(writer.getTmpFile()).doesNotExist();
+            assertThat(cache.contains(relPath)).isFalse();
+        }
+        assertThat(workDir.resolve("escape.jar")).doesNotExist();
+        assertThat(root.resolve(".tmp/hidden.jar")).doesNotExist();
+    }
+
+    @Test
+    void etagIsTheSha1SidecarAndSurvivesARestart() throws Exception {
+        byte[] content = "sources".getBytes(StandardCharsets.US_ASCII);
+        String sha1 = String.format("%040x", new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(content)));
+        ArtifactCache cache = new ArtifactCache(true, workDir.toString(), Long.MAX_VALUE);
+        cache.load();
+        ArtifactCache.CachedArtifact cached = put(cache, "org/example/a/1.0/a-1.0-sources.jar", content);
+
+        assertThat(cached.getEtag()).isEqualTo("\"" + sha1 + "\"");
+        assertThat(cached.getFile().resolveSibling("a-1.0-sources.jar.sha1")).hasContent(sha1);
+
+        // a file without a sidecar was never committed
+        Path uncommitted = workDir.resolve("org/example/b/1.0/b-1.0-sources.jar");
+        Files.createDirectories(uncommitted.getParent());
+        Files.write(uncommitted, content);
+        ArtifactCache restarted = new ArtifactCache(true, workDir.toString(), Long.MAX_VALUE);
+        restarted.load();
+        assertThat(restarted.lookup("org/example/a/1.0/a-1.0-sources.jar").getEtag()).isEqualTo(cached.getEtag());
+        assertThat(restarted.contains("org/example/b/1.0/b-1.0-sources.jar")).isFalse();
+        assertThat(uncommitted).doesNotExist();
+    }
+
+    private static ArtifactCache.CachedArtifact put(ArtifactCache cache, String relPath, byte[] content)
+            throws Exception {
+        ArtifactCache.Writer writer = cache.newWriter(relPath);
+        writer.write(content, 0, content.length);
+        return writer.commit();
+    }
+}
@@ -0,0 +1,85 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.maven.index.ArtifactInfo;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.elvisdsouza.javafind.service.TestUpstream.JAR;
+
+class ArtifactPrefetcherTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestUpstream upstream;
+    private UpstreamClient upstreamClient;
+    private InFlightDownloads inFlightDownloads;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ArtifactPrefetcher prefetcher;
+    private DownloadLimiter limiter;
+    private DownloadService downloadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new TestUpstream();
+        upstream.releaseBody();
+        ArtifactCache artifactCache = new ArtifactCache(true, workDir.resolve("cache").toString(), Long.MAX_VALUE);
+        artifactCache.load();
+        upstreamClient = new UpstreamClient(1000, 10000, 10000, 0, 10, 8, false);
+        DownloadMetrics metrics = new DownloadMetrics(new SimpleMeterRegistry());
+        inFlightDownloads = new InFlightDownloads(artifactCache, metrics, upstreamClient, 4096, 4);
+        SearchService searchService = upstream.newSearchService(workDir);
+        prefetcher = new ArtifactPrefetcher(searchService, artifactCache, inFlightDownloads, registry,
+                true, 3, 1, 4, 0, 100);
+        limiter = new DownloadLimiter(1, 1, 7);
+        downloadService = new DownloadService(searchService, artifactCache, inFlightDownloads, metrics, limiter,
+                upstreamClient, prefetcher, 4096);
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+        prefetcher.shutdown();
+        inFlightDownloads.shutdown();
+        upstreamClient.shutdown();
+        upstream.close();
+    }
+
+    @Test
+    void prefetchedArtifactIsServedFromTheCache() throws Exception {
+        List<JavaFindArtifact> top = List.of(
+                new JavaFindArtifact(new ArtifactInfo("central", "org.example", "demo", "1.0", "sources", "jar"),
+                        List.of("1.0"), 1),
+                new JavaFindArtifact(new ArtifactInfo("central", "org.example", "gone", "2.0", "sources", "jar"),
+                        List.of("2.0"), 1));
+        prefetcher.prefetch(new SearchResult(top, 2, null));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count("javafind.prefetch.fetched") + count("javafind.prefetch.failed") < 2
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(count("javafind.prefetch.fetched")).isEqualTo(1);
+        assertThat(count("javafind.prefetch.failed")).isEqualTo(1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.open(null, JAR, null).transferTo(out, 4096);
+        assertThat(out.toByteArray()).isEqualTo(upstream.getPayload());
+        assertThat(count("javafind.prefetch.hits")).isEqualTo(1);
+        assertThat(upstream.getHits()).isEqualTo(2);
+    }
+
+    private double count(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+}
@@ -0,0 +1,83 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elvisdsouza.javafind.domain.Suggestion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ArtifactSuggesterTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+    private SearchService searchService;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ArtifactSuggester suggester;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+        searchService = index.newSearchService(new SearchResultCache(1, 1), event -> { });
+        suggester = new ArtifactSuggester(searchService, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        suggester.shutdown();
+        searchService.close();
+        index.close();
+    }
+
+    @Test
+    void suggestionsFollowTheCurrentGeneration() throws Exception {
+        assertThat(suggester.suggest("demo", 10)).isEmpty();
+
+        index.addSources("org.example", "demo-core", "1.0");
+        index.addSources("org.example", "demo-api", "1.0", "1.1", "1.2");
+        // a version without sources is not counted, a GA without any is not suggested
+        index.addJar("org.example", "demo-api", "1.3", "/org/example/Api");
+        index.addJar("org.example", "demo-nosources", "1.0", "/org/example/NoSources");
+        index.addSources("org.demo", "tools", "1.0", "2.0");
+        index.addSources("com.Example", "Demo-Mixed", "1.0");
+        index.publishTo(searchService);
+        suggester.onGenerationChanged(new IndexGenerationChangedEvent(searchService.getCurrentGeneration(), null));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get("javafind.suggest.builds").functionCounter().count() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // artifactId and groupId prefixes, most versions first
+        assertThat(suggester.suggest("demo", 10)).extracting(Suggestion::getArtifactId, Suggestion::getVersionCount)
+                .containsExactly(tuple("demo-api", 3), tuple("demo-core", 1), tuple("Demo-Mixed", 1));
+        assertThat(suggester.suggest("org.", 2)).extracting(Suggestion::getArtifactId)
+                .containsExactly("demo-api", "tools");
+        assertThat(suggester.suggest("org.demo:t", 10)).extracting(Suggestion::getGroupId)
+                .containsExactly("org.demo");
+        assertThat(suggester.suggest("nothing", 10)).isEmpty();
+    }
+
+    @Test
+    void prefixesMatchInAnyCase() throws Exception {
+        index.addSources("org.example", "demo-core", "1.0");
+        index.addSources("com.Example", "Demo-Mixed", "1.0");
+        index.addJar("org.example", "demo-nosources", "1.0", "/org/example/NoSources");
+        index.publishTo(searchService);
+        suggester.rebuild();
+
+        assertThat(suggester.suggest("DEMO-C", 10)).extracting(Suggestion::getArtifactId)
+                .containsExactly("demo-core");
+        // shown as deployed
+        assertThat(suggester.suggest("com.example:", 10)).extracting(Suggestion::getGroupId, Suggestion::getArtifactId)
+                .containsExactly(tuple("com.Example", "Demo-Mixed"));
+        assertThat(suggester.suggest("Demo-N", 10)).isEmpty();
+    }
+}
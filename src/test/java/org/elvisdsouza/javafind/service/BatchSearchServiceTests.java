@@ -0,0 +1,65 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elvisdsouza.javafind.domain.BatchQuery;
+import org.elvisdsouza.javafind.domain.BatchQueryResult;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchSearchServiceTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+        searchService = index.newSearchService(new SearchResultCache(100, 60), event -> { });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchService.close();
+        index.close();
+    }
+
+    @Test
+    void batchRunsEachQueryOnTheSameGeneration() throws Exception {
+        index.addSources("org.example", "demo-core", "1.0");
+        index.addSources("org.example", "demo-api", "1.0");
+        index.publishTo(searchService);
+        BatchSearchService batch = new BatchSearchService(searchService, new SimpleMeterRegistry(), 10, 2, 1);
+        try {
+            List<BatchQueryResult> results = batch.search(Arrays.asList(
+                    new BatchQuery("demo-core", "artifact", 1, 10, null),
+                    new BatchQuery("demo", "artifact", 1, 1, null),
+                    new BatchQuery("demo", "nonsense", 1, 10, null),
+                    new BatchQuery("demo", "artifact", 1, 10, null),
+                    new BatchQuery("demo-core", null, 1, 10, null)));
+
+            assertThat(results.get(0).getResult().getArtifacts()).extracting(JavaFindArtifact::getArtifactId)
+                    .containsExactly("demo-core");
+            assertThat(results.get(1).getResult().getArtifacts()).hasSize(1);
+            assertThat(results.get(1).getResult().getNextCursor()).isNotNull();
+            assertThat(results.get(2).getError()).contains("nonsense");
+            assertThat(results.get(3).getResult().getArtifacts()).extracting(JavaFindArtifact::getArtifactId)
+                    .containsExactlyInAnyOrder("demo-core", "demo-api");
+            assertThat(results.get(4).getResult().getArtifacts()).extracting(JavaFindArtifact::getArtifactId)
+                    .containsExactly("demo-core");
+        } finally {
+            batch.shutdown();
+        }
+    }
+}
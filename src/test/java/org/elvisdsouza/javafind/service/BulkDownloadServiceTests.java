@@ -0,0 +1,90 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.elvisdsouza.javafind.service.TestUpstream.JAR;
+
+class BulkDownloadServiceTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestUpstream upstream;
+    private UpstreamClient upstreamClient;
+    private InFlightDownloads inFlightDownloads;
+    private ArtifactPrefetcher prefetcher;
+    private DownloadLimiter limiter;
+    private BulkDownloadService bulkDownloadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new TestUpstream();
+        upstream.releaseBody();
+        ArtifactCache artifactCache = new ArtifactCache(true, workDir.resolve("cache").toString(), Long.MAX_VALUE);
+        artifactCache.load();
+        upstreamClient = new UpstreamClient(1000, 10000, 10000, 0, 10, 8, false);
+        DownloadMetrics metrics = new DownloadMetrics(new SimpleMeterRegistry());
+        inFlightDownloads = new InFlightDownloads(artifactCache, metrics, upstreamClient, 4096, 4);
+        SearchService searchService = upstream.newSearchService(workDir);
+        prefetcher = new ArtifactPrefetcher(searchService, artifactCache, inFlightDownloads,
+                new SimpleMeterRegistry(), false, 3, 1, 1, 0, 100);
+        // a single slot and no queue
+        limiter = new DownloadLimiter(1, 0, 7);
+        DownloadService downloadService = new DownloadService(searchService, artifactCache, inFlightDownloads,
+                metrics, limiter, upstreamClient, prefetcher, 4096);
+        bulkDownloadService = new BulkDownloadService(searchService, downloadService, limiter, metrics,
+                new SimpleMeterRegistry(), 10, 2, 2, 4096);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkDownloadService.shutdown();
+        limiter.shutdown();
+        prefetcher.shutdown();
+        inFlightDownloads.shutdown();
+        upstreamClient.shutdown();
+        upstream.close();
+    }
+
+    @Test
+    void bulkDownloadZipsWhatCanBeFetched() throws Exception {
+        String missing = "org/example/demo/1.0/demo-1.0-javadoc.jar";
+        BulkDownloadService.Archive archive = bulkDownloadService.prepare(null, List.of(JAR, missing, JAR));
+        // the archive holds the only slot until it is written
+        assertThatThrownBy(() -> bulkDownloadService.prepare(null, List.of(JAR)))
+                .isInstanceOf(DownloadLimiter.BusyException.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archive.writeTo(out);
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        assertThat(entries).containsOnlyKeys(JAR, BulkDownloadService.FAILURES_ENTRY);
+        assertThat(entries.get(JAR)).isEqualTo(upstream.getPayload());
+        assertThat(new String(entries.get(BulkDownloadService.FAILURES_ENTRY))).startsWith(missing + ": ");
+
+        // written from the cache the first archive filled
+        bulkDownloadService.prepare(null, List.of(JAR)).writeTo(new ByteArrayOutputStream());
+        assertThat(upstream.getHits()).isEqualTo(2);
+        assertThatThrownBy(() -> bulkDownloadService.prepare(null, List.of("not/an/artifact")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,92 @@
+package org.elvisdsouza.javafind.service;
+
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClassNameSearchTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+        searchService = index.newSearchService(new SearchResultCache(100, 60), event -> { });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchService.close();
+        index.close();
+    }
+
+    @Test
+    void classNameSearchListsSourcesOfVersionsWithTheClass() throws Exception {
+        index.addJar("org.example", "demo-core", "1.0", "/org/example/demo/DemoService");
+        index.addJar("org.example", "demo-core", "2.0", "/org/example/demo/DemoService\n/org/example/demo/DemoServiceImpl");
+        index.addSources("org.example", "demo-core", "1.0", "2.0");
+        index.addJar("org.other", "tools", "1.0", "/org/other/ServiceDemo");
+        index.addSources("org.other", "tools", "1.0");
+        index.publishTo(searchService);
+
+        assertThat(classVersions("DemoService")).containsExactly("org.example:demo-core:2.0,1.0");
+        assertThat(classVersions("demoserviceimpl")).containsExactly("org.example:demo-core:2.0");
+        assertThat(classVersions("org.example.demo.Demo")).containsExactly("org.example:demo-core:2.0,1.0");
+        assertThat(classVersions("ServiceDemo")).containsExactly("org.other:tools:1.0");
+        assertThat(classVersions("com.example.DemoService")).isEmpty();
+        assertThat(searchService.searchClassName("DemoService", 1, null).getArtifacts())
+                .extracting(JavaFindArtifact::getPathTemplate)
+                .containsExactly("/org/example/demo-core/{version}/demo-core-{version}-sources.jar");
+    }
+
+    @Test
+    void classNameSearchPagesThroughEachGroupOnce() throws Exception {
+        // boosted groups rank first; "zzz" also has a version with only a longer name, which scores like the rest
+        for (String group : new String[]{"org.exact1", "org.exact2", "org.zzz"}) {
+            index.addJar(group, "widgets", "1.0", "/" + group.replace('.', '/') + "/Widget");
+            index.addSources(group, "widgets", "1.0");
+        }
+        index.addJar("org.zzz", "widgets", "2.0", "/org/zzz/WidgetFactory");
+        index.addSources("org.zzz", "widgets", "2.0");
+        for (int i = 0; i < 10; i++) {
+            index.addJar("org.g0" + i, "widgets", "1.0", "/org/g0" + i + "/WidgetFactory");
+            index.addSources("org.g0" + i, "widgets", "1.0");
+        }
+        // without sources it must not take a place on a page
+        index.addJar("org.aaa", "widgets", "1.0", "/org/aaa/Widget");
+        index.publishTo(searchService);
+
+        SearchResult first = searchService.searchClassName("Widget", 1, null);
+        SearchResult second = searchService.searchClassName("Widget", 1, first.getNextCursor());
+
+        assertThat(first.getArtifacts()).hasSize(10);
+        assertThat(first.getArtifacts().subList(0, 3)).extracting(JavaFindArtifact::getGroupId)
+                .containsExactly("org.exact1", "org.exact2", "org.zzz");
+        List<String> paged = new ArrayList<>();
+        first.getArtifacts().forEach(a -> paged.add(a.getGroupId()));
+        second.getArtifacts().forEach(a -> paged.add(a.getGroupId()));
+        assertThat(paged).hasSize(13).doesNotHaveDuplicates().doesNotContain("org.aaa");
+        assertThat(second.getArtifacts()).extracting(JavaFindArtifact::getGroupId)
+                .containsExactly("org.g07", "org.g08", "org.g09");
+    }
+
+    private List<String> classVersions(String className) throws Exception {
+        return searchService.searchClassName(className, 1, null).getArtifacts().stream()
+                .map(a -> a.getGroupId() + ":" + a.getArtifactId() + ":" + String.join(",", a.getVersions()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,79 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.elvisdsouza.javafind.service.TestUpstream.JAR;
+
+class DownloadServiceTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestUpstream upstream;
+    private ArtifactCache artifactCache;
+    private UpstreamClient upstreamClient;
+    private InFlightDownloads inFlightDownloads;
+    private ArtifactPrefetcher prefetcher;
+    private DownloadLimiter limiter;
+    private DownloadService downloadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new TestUpstream();
+        artifactCache = new ArtifactCache(true, workDir.resolve("cache").toString(), Long.MAX_VALUE);
+        artifactCache.load();
+        upstreamClient = new UpstreamClient(1000, 10000, 10000, 0, 10, 8, false);
+        DownloadMetrics metrics = new DownloadMetrics(new SimpleMeterRegistry());
+        inFlightDownloads = new InFlightDownloads(artifactCache, metrics, upstreamClient, 4096, 4);
+        SearchService searchService = upstream.newSearchService(workDir);
+        prefetcher = new ArtifactPrefetcher(searchService, artifactCache, inFlightDownloads,
+                new SimpleMeterRegistry(), false, 3, 1, 1, 0, 100);
+        // one download streaming and one queued behind it
+        limiter = new DownloadLimiter(1, 1, 7);
+        downloadService = new DownloadService(searchService, artifactCache, inFlightDownloads, metrics, limiter,
+                upstreamClient, prefetcher, 4096);
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+        prefetcher.shutdown();
+        inFlightDownloads.shutdown();
+        upstreamClient.shutdown();
+        upstream.close();
+    }
+
+    @Test
+    void downloadsBeyondTheBudgetAreShed() throws Exception {
+        ArtifactDownload first = downloadService.openAsync(null, JAR, null).get(10, TimeUnit.SECONDS);
+        CompletableFuture<ArtifactDownload> second = downloadService.openAsync(null, JAR, null);
+
+        // the next is turned away without waiting
+        assertThatThrownBy(() -> downloadService.openAsync(null, JAR, null))
+                .isInstanceOf(DownloadLimiter.BusyException.class)
+                .extracting("retryAfterSeconds").isEqualTo(7);
+
+        upstream.releaseBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.transfer(first, out);
+        assertThat(out.toByteArray()).isEqualTo(upstream.getPayload());
+        downloadService.discard(second.get(10, TimeUnit.SECONDS));
+
+        // both slots are given back
+        ArtifactDownload third = downloadService.openAsync(null, JAR, null).get(10, TimeUnit.SECONDS);
+        ArtifactDownload fourth = downloadService.openAsync(null, JAR, null).get(10, TimeUnit.SECONDS);
+        downloadService.discard(third);
+        downloadService.discard(fourth);
+    }
+}
@@ -0,0 +1,119 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexingContext;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class FederatedSearchServiceTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+        searchService = index.newSearchService(new SearchResultCache(100, 60), event -> { });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchService.close();
+        index.close();
+    }
+
+    @Test
+    void mergeTakesTurnsAndListsAGaOnce() {
+        SearchResult central = new SearchResult(List.of(artifact("central", "org.example", "demo-core"),
+                artifact("central", "org.example", "demo-api")), 2, null);
+        SearchResult mirror = new SearchResult(List.of(artifact("internal", "org.example", "demo-core"),
+                artifact("internal", "com.internal", "demo-tools")), 2, null);
+
+        SearchResult merged = FederatedSearchService.merge(List.of(central, mirror), 1, Collections.emptyList());
+
+        assertThat(merged.getArtifacts()).extracting(JavaFindArtifact::getArtifactId, JavaFindArtifact::getRepository)
+                .containsExactly(tuple("demo-core", "central"), tuple("demo-api", "central"),
+                        tuple("demo-tools", "internal"));
+        // an upper bound: the GA both have is counted twice
+        assertThat(merged.getTotalResultCount()).isEqualTo(4);
+    }
+
+    @Test
+    void federatedSearchMergesMirrorsAndSkipsMissingOnes() throws Exception {
+        index.addSources("org.example", "demo-core", "1.0");
+        index.publishTo(searchService);
+        File mirrorDir = workDir.resolve("internal-index").toFile();
+        IndexingContext mirror = index.createContext("internal", "internal", mirrorDir, "http://internal/");
+        List<ArtifactContext> artifacts = new ArrayList<>();
+        for (String[] ga : new String[][]{{"org.example", "demo-core"}, {"com.internal", "demo-tools"}}) {
+            ArtifactInfo ai = new ArtifactInfo("internal", ga[0], ga[1], "1.0", "sources", "jar");
+            artifacts.add(new ArtifactContext(null, null, null, ai, null));
+        }
+        // a class only the mirror has
+        ArtifactInfo jar = new ArtifactInfo("internal", "com.internal", "demo-tools", "1.0", null, "jar");
+        jar.setClassNames("/com/internal/tools/InternalTool");
+        artifacts.add(new ArtifactContext(null, null, null, jar, null));
+        index.getIndexer().addArtifactsToIndex(artifacts, mirror);
+        mirror.close(false);
+
+        FederationProperties properties = new FederationProperties();
+        properties.getMirrors().add(mirror("internal", "http://internal", mirrorDir));
+        properties.getMirrors().add(mirror("gone", "http://gone", workDir.resolve("missing").toFile()));
+        SearchResultCache cache = new SearchResultCache(100, 60);
+        FederatedSearchService federated = new FederatedSearchService(searchService, cache, properties,
+                new SimpleMeterRegistry());
+        federated.openMirrors();
+        try {
+            SearchResult result = federated.search(SearchMode.ARTIFACT, "demo", 1, null);
+
+            assertThat(result.getArtifacts()).extracting(JavaFindArtifact::getArtifactId, JavaFindArtifact::getRepository)
+                    .containsExactly(tuple("demo-core", "central"), tuple("demo-tools", "internal"));
+            assertThat(result.getUnavailableRepositories()).containsExactly("gone");
+            // a mirror that never opened does not keep the merged result out of the cache
+            assertThat(federated.search(SearchMode.ARTIFACT, "demo", 1, null)).isSameAs(result);
+            assertThat(cache.size()).isEqualTo(1);
+            assertThatThrownBy(() -> federated.search(SearchMode.ARTIFACT, "demo", 1, "cursor"))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(federated.search(SearchMode.CLASS, "InternalTo", 1, null).getArtifacts())
+                    .extracting(JavaFindArtifact::getArtifactId, JavaFindArtifact::getRepository)
+                    .containsExactly(tuple("demo-tools", "internal"));
+            assertThat(searchService.relPathToUrl("internal", "com/internal/demo-tools/1.0/demo-tools-1.0-sources.jar"))
+                    .isEqualTo("http://internal/com/internal/demo-tools/1.0/demo-tools-1.0-sources.jar");
+        } finally {
+            federated.shutdown();
+        }
+    }
+
+    private static FederationProperties.Mirror mirror(String id, String url, File indexDir) {
+        FederationProperties.Mirror mirror = new FederationProperties.Mirror();
+        mirror.setId(id);
+        mirror.setUrl(url);
+        mirror.setIndexDir(indexDir);
+        return mirror;
+    }
+
+
+    private static JavaFindArtifact artifact(String repository, String groupId, String artifactId) {
+        return new JavaFindArtifact(new ArtifactInfo(repository, groupId, artifactId, "1.0", "sources", "jar"),
+                List.of("1.0"), 1);
+    }
+}
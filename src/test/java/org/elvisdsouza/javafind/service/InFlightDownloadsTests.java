@@ -0,0 +1,120 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.elvisdsouza.javafind.service.TestUpstream.JAR;
+
+class InFlightDownloadsTests {
+
+    @TempDir
+    Path cacheDir;
+
+    private TestUpstream upstream;
+    private ArtifactCache artifactCache;
+    private UpstreamClient upstreamClient;
+    private InFlightDownloads inFlightDownloads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new TestUpstream();
+        artifactCache = new ArtifactCache(true, cacheDir.toString(), Long.MAX_VALUE);
+        artifactCache.load();
+        upstreamClient = new UpstreamClient(1000, 10000, 10000, 0, 10, 8, false);
+        inFlightDownloads = new InFlightDownloads(artifactCache, new DownloadMetrics(new SimpleMeterRegistry()),
+                upstreamClient, 4096, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        inFlightDownloads.shutdown();
+        upstreamClient.shutdown();
+        upstream.close();
+    }
+
+    @Test
+    void concurrentRequestsShareOneUpstreamFetch() throws Exception {
+        int requesters = 8;
+        ExecutorService clients = Executors.newFixedThreadPool(requesters);
+        CountDownLatch attached = new CountDownLatch(requesters);
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < requesters; i++) {
+            results.add(clients.submit(() -> {
+                ArtifactDownload download = inFlightDownloads.join(JAR, upstream.url(JAR), "demo-1.0-sources.jar");
+                attached.countDown();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                download.transferTo(out, 1000);
+                return out.toByteArray();
+            }));
+        }
+
+        // the body is held back until every requester has attached
+        assertThat(attached.await(10, TimeUnit.SECONDS)).isTrue();
+        upstream.releaseBody();
+        for (Future<byte[]> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(upstream.getPayload());
+        }
+        clients.shutdown();
+
+        assertThat(upstream.getHits()).isEqualTo(1);
+        ArtifactCache.CachedArtifact cached = artifactCache.lookup(JAR);
+        assertThat(cached).isNotNull();
+        assertThat(cached.getSize()).isEqualTo(upstream.getPayload().length);
+    }
+
+    @Test
+    void requesterJoiningAtCommitReadsTheCommittedFile() throws Exception {
+        upstream.releaseBody();
+        CompletableFuture<byte[]> late = new CompletableFuture<>();
+        artifactCache.addCommitListener(artifact -> {
+            // the spool file has just been moved into the cache and the fetch is still in flight
+            Thread joiner = new Thread(() -> {
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    inFlightDownloads.join(JAR, upstream.url(JAR), "demo-1.0-sources.jar").transferTo(out, 1000);
+                    late.complete(out.toByteArray());
+                } catch (Throwable e) {
+                    late.completeExceptionally(e);
+                }
+            });
+            joiner.start();
+            // hold the commit until the late requester waits for it, or has already failed
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (joiner.getState() != Thread.State.BLOCKED && !late.isDone() && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        inFlightDownloads.join(JAR, upstream.url(JAR), "demo-1.0-sources.jar").transferTo(out, 1000);
+
+        assertThat(out.toByteArray()).isEqualTo(upstream.getPayload());
+        assertThat(late.get(10, TimeUnit.SECONDS)).isEqualTo(upstream.getPayload());
+        assertThat(upstream.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void missingArtifactFailsEveryRequester() {
+        String missing = "org/example/missing/1.0/missing-1.0-sources.jar";
+        assertThatThrownBy(() -> inFlightDownloads.join(missing, upstream.url(missing), "missing-1.0-sources.jar"))
+                .isInstanceOf(FileNotFoundException.class);
+        assertThat(artifactCache.lookup(missing)).isNull();
+    }
+}
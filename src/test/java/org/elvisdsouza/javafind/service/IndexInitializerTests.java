@@ -0,0 +1,57 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elvisdsouza.javafind.domain.Readiness;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexInitializerTests {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void initializerReportsProgressUntilReady() throws Exception {
+        SearchResultCache cache = new SearchResultCache(100, 60);
+        SearchService starting = new SearchService(cache, new SourcesFilter(),
+                new UserQueryBuilder(), new ClassNameIndex(), new ParallelGroupSearch(0, 0, 1),
+                new SearchMetrics(new SimpleMeterRegistry()), event -> { },
+                workDir.resolve("starting-index").toFile(), workDir.resolve("starting-cache").toFile(),
+                "http://localhost/", "ga+classes", false, 20);
+        FederatedSearchService federated = new FederatedSearchService(starting, cache, new FederationProperties(),
+                new SimpleMeterRegistry());
+        Path popularFile = workDir.resolve("popular-queries.txt");
+        Files.write(popularFile, Arrays.asList("3\tdemo", "5\tpopular"));
+        QueryPopularity popularity = new QueryPopularity(federated, new SimpleMeterRegistry(), popularFile.toFile(),
+                100, 10);
+        popularity.load();
+        IndexInitializer initializer = new IndexInitializer(starting, federated, new StaticListableBeanFactory()
+                .getBeanProvider(BulkIndexImporter.class), popularity, new SimpleMeterRegistry(),
+                Arrays.asList("demo", " "));
+        try {
+            assertThat(initializer.readiness().getPhase()).isEqualTo("starting");
+            assertThatThrownBy(() -> starting.searchUserInput("demo", 1, null))
+                    .isInstanceOf(SearchService.IndexNotReadyException.class);
+
+            initializer.initialize();
+
+            // the configured query, then the popular one that was not configured
+            assertThat(initializer.readiness()).extracting(Readiness::isReady, Readiness::getWarmedQueries,
+                    Readiness::getIndexGeneration).containsExactly(true, 2, 0L);
+            assertThat(cache.size()).isEqualTo(2);
+            assertThat(starting.searchUserInput("demo", 1, null).getArtifacts()).isEmpty();
+        } finally {
+            popularity.shutdown();
+            federated.shutdown();
+            starting.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.maven.index.updater.DefaultIndexUpdater;
+import org.elvisdsouza.javafind.domain.JavaFindArtifact;
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexUpdateTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+    private SearchResultCache resultCache;
+    private SearchService searchService;
+    private final List<IndexGenerationChangedEvent> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+        resultCache = new SearchResultCache(100, 60);
+        searchService = index.newSearchService(resultCache, event -> events.add((IndexGenerationChangedEvent) event));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchService.close();
+        index.close();
+    }
+
+    @Test
+    void updateSwapsInNewGeneration() throws Exception {
+        index.addSources("org.example", "demo", "1.0", "1.1");
+        File published = index.publish();
+
+        searchService.updateIndex(new DefaultIndexUpdater.FileFetcher(published));
+
+        assertThat(searchService.getCurrentGeneration()).isEqualTo(1);
+        assertThat(events).extracting(IndexGenerationChangedEvent::getGeneration).containsExactly(0L, 1L);
+        assertThat(artifactIds("demo")).containsExactly("demo");
+    }
+
+    @Test
+    void searchesKeepTheirGenerationAcrossASwap() throws Exception {
+        index.addSources("org.example", "demo", "1.0");
+        index.publishTo(searchService);
+
+        IndexGeneration held = searchService.acquireGeneration();
+        File heldDir = held.getDirectory();
+        try {
+            Thread.sleep(10); // the index timestamp has millisecond resolution
+            index.addSources("org.example", "other", "2.0");
+            index.publishTo(searchService);
+
+            assertThat(searchService.getCurrentGeneration()).isEqualTo(2);
+            assertThat(artifactIds("other")).containsExactly("other");
+            // the swapped-out generation is still open for the search holding it
+            IndexSearcher searcher = held.getContext().acquireIndexSearcher();
+            assertThat(searcher.getIndexReader().numDocs()).isGreaterThan(0);
+            held.getContext().releaseIndexSearcher(searcher);
+            assertThat(heldDir).isDirectory();
+        } finally {
+            searchService.releaseGeneration(held);
+        }
+        assertThat(heldDir).doesNotExist();
+    }
+
+    @Test
+    void searchOnlyReturnsArtifactsWithSources() throws Exception {
+        index.addSources("org.example", "demo-core", "1.0");
+        index.addArtifacts("org.example", "demo-api", null, "1.0");
+        index.publishTo(searchService);
+
+        assertThat(artifactIds("demo")).containsExactly("demo-core");
+    }
+
+    @Test
+    void unchangedIndexKeepsCurrentGeneration() throws Exception {
+        index.addSources("org.example", "demo", "1.0");
+        File published = index.publish();
+        searchService.updateIndex(new DefaultIndexUpdater.FileFetcher(published));
+
+        searchService.updateIndex(new DefaultIndexUpdater.FileFetcher(published));
+
+        assertThat(searchService.getCurrentGeneration()).isEqualTo(1);
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    void bulkImportSeedsEmptyIndex() throws Exception {
+        index.addSources("org.example", "demo", "1.0", "1.1");
+        index.addSources("org.example", "other", "2.0");
+        File published = index.publish();
+
+        BulkIndexImporter importer = new BulkIndexImporter(searchService, published, 3, 16);
+        assertThat(importer.importFrom(published).getDocumentCount()).isGreaterThanOrEqualTo(3);
+
+        assertThat(searchService.getCurrentGeneration()).isEqualTo(1);
+        assertThat(searchService.getCentralContext().getTimestamp()).isEqualTo(index.getRemote().getTimestamp());
+        assertThat(searchService.getCentralContext().getAllGroups()).containsExactly("org.example");
+        assertThat(artifactIds("demo")).containsExactly("demo");
+        assertThat(artifactIds("other")).containsExactly("other");
+
+        // the transfer properties were adopted, so the same published index is not applied again
+        searchService.updateIndex(new DefaultIndexUpdater.FileFetcher(published));
+        assertThat(searchService.getCurrentGeneration()).isEqualTo(1);
+    }
+
+    @Test
+    void versionsAreListedLatestFirstAndPaged() throws Exception {
+        index.addSources("org.example", "demo", "1.9", "1.10", "1.10.1", "2.0-beta-1", "2.0");
+        index.addArtifacts("org.example", "demo", null, "3.0");
+        index.publishTo(searchService);
+
+        JavaFindArtifact found = searchService.searchUserInput("demo", 1, null).getArtifacts().get(0);
+        assertThat(found.getVersions()).containsExactly("2.0", "2.0-beta-1", "1.10.1", "1.10", "1.9");
+        assertThat(found.getVersionCount()).isEqualTo(5);
+        assertThat(found.relFilepath("1.9")).isEqualTo("/org/example/demo/1.9/demo-1.9-sources.jar");
+
+        JavaFindArtifact page = searchService.listVersions("org.example", "demo", 1, 2);
+        assertThat(page.getVersions()).containsExactly("2.0-beta-1", "1.10.1");
+        assertThat(page.getVersionCount()).isEqualTo(5);
+    }
+
+    private List<String> artifactIds(String query) throws Exception {
+        SearchResult result = searchService.searchUserInput(query, 1, null);
+        return result.getArtifacts().stream().map(JavaFindArtifact::getArtifactId).collect(Collectors.toList());
+    }
+}
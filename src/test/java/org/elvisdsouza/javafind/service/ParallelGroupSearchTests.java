@@ -0,0 +1,114 @@
+package org.elvisdsouza.javafind.service;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelGroupSearchTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void parallelRankingMatchesSequential() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            index.addSources("org.example" + i, "demo-" + (i % 3 == 0 ? "core" : "api" + i), "1.0", "1." + i);
+        }
+        ParallelGroupSearch parallel = new ParallelGroupSearch(2, 5, 1);
+        IndexSearcher searcher = index.getRemote().acquireIndexSearcher();
+        try {
+            Query q = new UserQueryBuilder().build("demo");
+            TopGroupsCollector expected = new ParallelGroupSearch(0, 0, 1).topGroups(searcher, q, 5, null);
+            TopGroupsCollector actual = parallel.topGroups(searcher, q, 5, null);
+
+            assertThat(parallel.split(searcher.getIndexReader().leaves())).hasSizeGreaterThan(1);
+            assertThat(actual.getTotalHits()).isEqualTo(expected.getTotalHits());
+            assertThat(actual.topGroups()).extracting(TopGroupsCollector.GroupHit::getGroupKey)
+                    .hasSize(5)
+                    .containsExactlyElementsOf(expected.topGroups().stream()
+                            .map(TopGroupsCollector.GroupHit::getGroupKey).collect(Collectors.toList()));
+        } finally {
+            index.getRemote().releaseIndexSearcher(searcher);
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void interruptedRankingWaitsForRunningPartitions() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            index.addSources("org.example" + i, "demo-api" + i, "1.0");
+        }
+        ParallelGroupSearch parallel = new ParallelGroupSearch(2, 5, 1);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        Query slow = new Query() {
+            @Override
+            public Weight createWeight(IndexSearcher searcher, boolean needsScores) {
+                return new ConstantScoreWeight(this) {
+                    @Override
+                    public Scorer scorer(LeafReaderContext context) throws IOException {
+                        started.incrementAndGet();
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            finished.incrementAndGet();
+                        }
+                        return new ConstantScoreScorer(this, score(), DocIdSetIterator.all(context.reader().maxDoc()));
+                    }
+                };
+            }
+
+            @Override
+            public String toString(String field) {
+                return "slow";
+            }
+        };
+        IndexSearcher searcher = index.getRemote().acquireIndexSearcher();
+        try {
+            int partitions = parallel.split(searcher.getIndexReader().leaves()).size();
+            Thread.currentThread().interrupt();
+            assertThatThrownBy(() -> parallel.topGroups(searcher, slow, 5, null))
+                    .isInstanceOf(InterruptedIOException.class);
+
+            assertThat(Thread.interrupted()).isTrue();
+            // nothing still reads the searcher released below, and the queued partitions never ran
+            assertThat(finished.get()).isEqualTo(started.get());
+            assertThat(started.get()).isLessThan(partitions);
+        } finally {
+            index.getRemote().releaseIndexSearcher(searcher);
+            parallel.shutdown();
+        }
+    }
+}
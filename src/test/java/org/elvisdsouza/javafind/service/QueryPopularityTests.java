@@ -0,0 +1,83 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryPopularityTests {
+
+    @TempDir
+    Path workDir;
+
+    private TestIndex index;
+    private final SearchResultCache resultCache = new SearchResultCache(100, 60);
+    private SearchService searchService;
+    private FederatedSearchService federated;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private File file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new TestIndex(workDir);
+        searchService = index.newSearchService(resultCache, event -> { });
+        federated = new FederatedSearchService(searchService, resultCache, new FederationProperties(), registry);
+        file = workDir.resolve("popular-queries.txt").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        federated.shutdown();
+        searchService.close();
+        index.close();
+    }
+
+    @Test
+    void popularQueriesArePersistedAcrossRestarts() throws Exception {
+        QueryPopularity popularity = new QueryPopularity(federated, registry, file, 4, 2);
+        for (String query : Arrays.asList("demo", "other query", "demo", "other query", "rare", "demo",
+                "fourth", "fifth", "", "tab\tquery")) {
+            popularity.record(query);
+        }
+        assertThat(popularity.replayQueries()).containsExactly("demo", "other query");
+        assertThat(registry.get("javafind.popularity.untracked").functionCounter().count()).isEqualTo(1);
+        popularity.persist();
+        popularity.shutdown();
+
+        QueryPopularity restarted = new QueryPopularity(federated, new SimpleMeterRegistry(), file, 4, 10);
+        restarted.load();
+        assertThat(restarted.topQueries(10)).containsExactly("demo", "other query");
+        restarted.shutdown();
+    }
+
+    @Test
+    void popularQueriesAreReplayedIntoNewGenerations() throws Exception {
+        QueryPopularity popularity = new QueryPopularity(federated, registry, file, 4, 2);
+        try {
+            for (String query : Arrays.asList("demo", "other query", "demo", "rare")) {
+                popularity.record(query);
+            }
+            index.addSources("org.example", "demo", "1.0");
+            index.publishTo(searchService);
+            popularity.onGenerationChanged(new IndexGenerationChangedEvent(searchService.getCurrentGeneration(), null));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (registry.get("javafind.popularity.replayed").functionCounter().count() < 2
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(registry.get("javafind.popularity.replayed").functionCounter().count()).isEqualTo(2);
+            // warmed where /searcha looks
+            assertThat(resultCache.size()).isEqualTo(2);
+        } finally {
+            popularity.shutdown();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.elvisdsouza.javafind.service;
+
+import org.elvisdsouza.javafind.domain.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTests {
+
+    private final SearchResultCache cache = new SearchResultCache(100, 60);
+    private final Date generation = new Date(1000);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void queriesParsedDifferentlyDoNotShareAnEntry() throws Exception {
+        // a trailing blank turns off the prefix match, lowercase "and" is not an operator
+        SearchResult prefix = get("foo");
+        SearchResult exact = get("foo ");
+        SearchResult and = get("a AND b");
+        SearchResult terms = get("a and b");
+
+        assertThat(loads).hasValue(4);
+        assertThat(prefix).isNotSameAs(exact);
+        assertThat(and).isNotSameAs(terms);
+        assertThat(get("foo")).isSameAs(prefix);
+        assertThat(get("a and b")).isSameAs(terms);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void modesDoNotShareAnEntry() throws Exception {
+        SearchResult artifact = get(SearchMode.ARTIFACT, "class:foo");
+        SearchResult className = get(SearchMode.CLASS, "foo");
+        SearchResult sameName = get(SearchMode.ARTIFACT, "foo");
+
+        assertThat(loads).hasValue(3);
+        assertThat(artifact).isNotSameAs(className);
+        assertThat(className).isNotSameAs(sameName);
+        assertThat(get(SearchMode.CLASS, "foo")).isSameAs(className);
+        assertThat(loads).hasValue(3);
+    }
+
+    private SearchResult get(String query) throws Exception {
+        return get(SearchMode.ARTIFACT, query);
+    }
+
+    private SearchResult get(SearchMode mode, String query) throws Exception {
+        return cache.get(mode, query, 1, null, generation, () -> {
+            loads.incrementAndGet();
+            return new SearchResult(Collections.emptyList(), 0, null);
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elvisdsouza.javafind.domain.SymbolHit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SourceSymbolIndexTests {
+
+    private static final String JAR = "org/example/demo/1.2/demo-1.2-sources.jar";
+
+    private static final String PARSER = "package org.example.demo;\n"
+            + "\n"
+            + "import java.util.List;\n"
+            + "\n"
+            + "/** A parser { with braces in its comment */\n"
+            + "@Deprecated\n"
+            + "public final class Parser<T> implements Cloneable {\n"
+            + "    private static final String OPEN = \"{\";\n"
+            + "    private final Runnable task = () -> { System.out.println('}'); };\n"
+            + "    private int[] values = {1, 2};\n"
+            + "    static { init(); }\n"
+            + "\n"
+            + "    public Parser(String source) { this.source = source; }\n"
+            + "\n"
+            + "    @SuppressWarnings(value = \"unchecked\")\n"
+            + "    public <R> List<R> parse(Class<R> type) throws java.io.IOException {\n"
+            + "        if (type == null) { return null; }\n"
+            + "        Object local = new Object() { void hidden() { } };\n"
+            + "        return null;\n"
+            + "    }\n"
+            + "\n"
+            + "    public List<T> parse() { return parse((Class<T>) null); }\n"
+            + "\n"
+            + "    interface Listener {\n"
+            + "        void onToken(String token);\n"
+            + "        default int priority() { return 0; }\n"
+            + "    }\n"
+            + "\n"
+            + "    enum Mode { STRICT(\"s\") { }, LENIENT(\"l\");\n"
+            + "        Mode(String code) { }\n"
+            + "        abstract String describe();\n"
+            + "    }\n"
+            + "}\n";
+
+    @TempDir
+    Path dir;
+
+    private ArtifactCache artifactCache;
+    private SourceSymbolIndex symbolIndex;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        artifactCache = new ArtifactCache(true, dir.resolve("cache").toString(), Long.MAX_VALUE);
+        artifactCache.load();
+        symbolIndex = new SourceSymbolIndex(artifactCache, true, dir.resolve("symbols").toFile(), 10, 1 << 20);
+        symbolIndex.open();
+        symbolIndex.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        symbolIndex.close();
+    }
+
+    @Test
+    void scansDeclarationsOnly() {
+        assertThat(JavaSymbolScanner.scan(PARSER)).extracting(s -> s.getKind() + " " + s.getClassName() + " " + s.getName())
+                .containsExactly(
+                        "class org.example.demo.Parser Parser",
+                        "method org.example.demo.Parser Parser",
+                        "method org.example.demo.Parser parse",
+                        "class org.example.demo.Parser.Listener Listener",
+                        "method org.example.demo.Parser.Listener onToken",
+                        "method org.example.demo.Parser.Listener priority",
+                        "class org.example.demo.Parser.Mode Mode",
+                        "method org.example.demo.Parser.Mode Mode",
+                        "method org.example.demo.Parser.Mode describe");
+    }
+
+    @Test
+    void downloadedSourcesJarBecomesSearchable() throws Exception {
+        ArtifactCache.Writer writer = artifactCache.newWriter(JAR);
+        byte[] jar = sourcesJar();
+        writer.write(jar, 0, jar.length);
+        writer.commit();
+
+        List<SymbolHit> hits = awaitHits("Parser.parse", "method");
+        assertThat(hits).hasSize(1);
+        assertThat(hits.get(0)).isEqualTo(new SymbolHit("org.example", "demo", "1.2", "method",
+                "org.example.demo.Parser", "parse", JAR));
+        assertThat(symbolIndex.find("org.example.demo.parser.PARSE", null, 10)).hasSize(1);
+        assertThat(symbolIndex.find("on*", null, 10)).extracting(SymbolHit::getName).containsExactly("onToken");
+        assertThat(symbolIndex.find("parser", "class", 10)).extracting(SymbolHit::getClassName)
+                .containsExactly("org.example.demo.Parser");
+        assertThat(symbolIndex.find("hidden", null, 10)).isEmpty();
+        assertThatThrownBy(() -> symbolIndex.find(" ", null, 10)).isInstanceOf(IllegalArgumentException.class);
+
+        // a second copy of the jar replaces the first
+        writer = artifactCache.newWriter(JAR);
+        writer.write(jar, 0, jar.length);
+        writer.commit();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get("javafind.symbols.ingest").functionTimer().count() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.get("javafind.symbols.ingest").functionTimer().count()).isEqualTo(2);
+        assertThat(symbolIndex.find("Parser.parse", "method", 10)).hasSize(1);
+    }
+
+    private List<SymbolHit> awaitHits(String query, String kind) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<SymbolHit> hits = symbolIndex.find(query, kind, 10);
+        while (hits.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            hits = symbolIndex.find(query, kind, 10);
+        }
+        return hits;
+    }
+
+    private static byte[] sourcesJar() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("org/example/demo/Parser.java"));
+            zip.write(PARSER.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,122 @@
+package org.elvisdsouza.javafind.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.Indexer;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+import org.apache.maven.index.packer.IndexPacker;
+import org.apache.maven.index.packer.IndexPackingRequest;
+import org.apache.maven.index.updater.DefaultIndexUpdater;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.PlexusContainer;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A remote repository index that tests add artifacts to and publish, as central does, and the
+ * {@link SearchService} that downloads it.
+ */
+class TestIndex implements AutoCloseable {
+
+    private final Path workDir;
+    private final PlexusContainer container;
+    private final Indexer indexer;
+    private final IndexingContext remote;
+    private int published;
+
+    TestIndex(Path workDir) throws Exception {
+        this.workDir = workDir;
+        DefaultContainerConfiguration config = new DefaultContainerConfiguration();
+        config.setClassPathScanning(PlexusConstants.SCANNING_INDEX);
+        container = new DefaultPlexusContainer(config);
+        indexer = container.lookup(Indexer.class);
+        remote = createContext("remote", "central", workDir.resolve("remote-index").toFile(), "http://localhost/");
+    }
+
+    /**
+     * An initialized search service over an empty index of its own, updated by {@link #publishTo}.
+     */
+    SearchService newSearchService(SearchResultCache resultCache, ApplicationEventPublisher events) throws Exception {
+        SearchService searchService = new SearchService(resultCache, new SourcesFilter(), new UserQueryBuilder(),
+                new ClassNameIndex(), new ParallelGroupSearch(0, 0, 1), new SearchMetrics(new SimpleMeterRegistry()),
+                events, workDir.resolve("central-index").toFile(), workDir.resolve("central-cache").toFile(),
+                "http://localhost/", "ga+classes", false, 20);
+        searchService.initialize();
+        return searchService;
+    }
+
+    /**
+     * An index written with the same creators as the remote one.
+     */
+    IndexingContext createContext(String id, String repositoryId, File indexDir, String url) throws Exception {
+        List<IndexCreator> creators = Arrays.asList(container.lookup(IndexCreator.class, "min"),
+                container.lookup(IndexCreator.class, "jarContent"));
+        return indexer.createIndexingContext(id, repositoryId, null, indexDir, url, null, true, true, creators);
+    }
+
+    Indexer getIndexer() {
+        return indexer;
+    }
+
+    IndexingContext getRemote() {
+        return remote;
+    }
+
+    void addSources(String groupId, String artifactId, String... versions) throws Exception {
+        addArtifacts(groupId, artifactId, "sources", versions);
+    }
+
+    void addArtifacts(String groupId, String artifactId, String classifier, String... versions) throws Exception {
+        List<ArtifactContext> artifacts = new ArrayList<>();
+        for (String version : versions) {
+            ArtifactInfo ai = new ArtifactInfo("central", groupId, artifactId, version, classifier, "jar");
+            artifacts.add(new ArtifactContext(null, null, null, ai, null));
+        }
+        indexer.addArtifactsToIndex(artifacts, remote);
+        remote.updateTimestamp(true);
+    }
+
+    void addJar(String groupId, String artifactId, String version, String classNames) throws Exception {
+        ArtifactInfo ai = new ArtifactInfo("central", groupId, artifactId, version, null, "jar");
+        ai.setClassNames(classNames);
+        indexer.addArtifactsToIndex(Collections.singletonList(new ArtifactContext(null, null, null, ai, null)), remote);
+        remote.updateTimestamp(true);
+    }
+
+    /**
+     * Packs the remote index as a full update, the way central publishes it.
+     */
+    File publish() throws Exception {
+        File target = workDir.resolve("published-" + ++published).toFile();
+        IndexSearcher searcher = remote.acquireIndexSearcher();
+        try {
+            IndexPackingRequest request = new IndexPackingRequest(remote, searcher.getIndexReader(), target);
+            request.setCreateIncrementalChunks(false);
+            container.lookup(IndexPacker.class).packIndex(request);
+        } finally {
+            remote.releaseIndexSearcher(searcher);
+        }
+        return target;
+    }
+
+    void publishTo(SearchService searchService) throws Exception {
+        searchService.updateIndex(new DefaultIndexUpdater.FileFetcher(publish()));
+    }
+
+    @Override
+    public void close() throws Exception {
+        remote.close(true);
+        container.dispose();
+    }
+}
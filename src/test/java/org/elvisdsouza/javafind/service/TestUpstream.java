@@ -0,0 +1,111 @@
+package org.elvisdsouza.javafind.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A repository serving one 1MB sources jar at {@link #JAR}, or a single byte range of it, and 404 for anything else.
+ * The body is held back until {@link #releaseBody()}, so tests can attach several requesters to one fetch. Public for
+ * the controller tests.
+ */
+public class TestUpstream implements AutoCloseable {
+
+    public static final String JAR = "org/example/demo/1.0/demo-1.0-sources.jar";
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final byte[] payload = new byte[1 << 20];
+    private final AtomicInteger hits = new AtomicInteger();
+    private final CountDownLatch releaseBody = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+
+    public TestUpstream() throws IOException {
+        new Random(42).nextBytes(payload);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            if (!exchange.getRequestURI().getPath().endsWith(JAR)) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            int start = 0;
+            int end = payload.length - 1;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            Matcher m = range == null ? null : RANGE.matcher(range);
+            if (m != null && m.matches()) {
+                start = m.group(1).isEmpty()
+                        ? payload.length - Integer.parseInt(m.group(2)) : Integer.parseInt(m.group(1));
+                if (!m.group(1).isEmpty() && !m.group(2).isEmpty()) {
+                    end = Math.min(end, Integer.parseInt(m.group(2)));
+                }
+                if (start >= payload.length) {
+                    exchange.sendResponseHeaders(416, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + start + "-" + end + "/" + payload.length);
+                exchange.sendResponseHeaders(206, end - start + 1);
+            } else {
+                exchange.sendResponseHeaders(200, payload.length);
+            }
+            try (OutputStream out = exchange.getResponseBody()) {
+                releaseBody.await(10, TimeUnit.SECONDS);
+                for (int off = start; off <= end; off += 8192) {
+                    out.write(payload, off, Math.min(8192, end + 1 - off));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * A search service that only maps artifact paths to this repository; its index is never opened.
+     */
+    public SearchService newSearchService(Path workDir) {
+        return new SearchService(new SearchResultCache(1, 1), new SourcesFilter(), new UserQueryBuilder(),
+                new ClassNameIndex(), new ParallelGroupSearch(0, 0, 1), new SearchMetrics(new SimpleMeterRegistry()),
+                event -> { }, workDir.resolve("index").toFile(), workDir.resolve("index-cache").toFile(),
+                url("").replaceAll("/$", ""), "ga-only", false, 20);
+    }
+
+    public String url(String relPath) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + relPath;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public void releaseBody() {
+        releaseBody.countDown();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package org.elvisdsouza.javafind.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamClientTests {
+
+    private static final byte[] BODY = "artifact".getBytes();
+
+    private HttpServer upstream;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private UpstreamClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // /flaky fails twice, /missing is not there, /bad is a client error, /slow holds back its headers and
+        // /stalled its body until the test ends
+        upstream.createContext("/", exchange -> {
+            int hit = hits.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            try {
+                if (path.equals("/flaky") && hit <= 2) {
+                    respond(exchange, 503, null);
+                } else if (path.equals("/missing")) {
+                    respond(exchange, 404, null);
+                } else if (path.equals("/bad")) {
+                    respond(exchange, 400, null);
+                } else if (path.equals("/slow")) {
+                    release.await(10, TimeUnit.SECONDS);
+                    respond(exchange, 200, BODY);
+                } else if (path.equals("/stalled")) {
+                    exchange.sendResponseHeaders(200, BODY.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(BODY, 0, 1);
+                        out.flush();
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                } else {
+                    respond(exchange, 200, BODY);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        upstream.setExecutor(Executors.newCachedThreadPool());
+        upstream.start();
+        client = new UpstreamClient(1000, 300, 300, 2, 10, 8, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        client.shutdown();
+        upstream.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        if (body != null) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + upstream.getAddress().getPort() + path;
+    }
+
+    @Test
+    void serverErrorsAreRetried() throws Exception {
+        UpstreamClient.Response response = client.get(url("/flaky"), null);
+        try (InputStream body = response.getBody()) {
+            assertThat(body.readAllBytes()).isEqualTo(BODY);
+        }
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(hits.get()).isEqualTo(3);
+    }
+
+    @Test
+    void missingAndClientErrorsAreNotRetried() {
+        assertThatThrownBy(() -> client.get(url("/missing"), null)).isInstanceOf(FileNotFoundException.class);
+        assertThatThrownBy(() -> client.get(url("/bad"), null))
+                .isInstanceOf(UpstreamClient.UpstreamException.class)
+                .extracting("status").isEqualTo(400);
+        assertThat(hits.get()).isEqualTo(2);
+    }
+
+    @Test
+    void slowHeadersTimeOutAfterRetries() {
+        assertThatThrownBy(() -> client.get(url("/slow"), null))
+                .isInstanceOf(UpstreamClient.UpstreamException.class)
+                .extracting("timeout").isEqualTo(true);
+        assertThat(hits.get()).isEqualTo(3);
+    }
+
+    @Test
+    void stalledBodyTimesOut() throws Exception {
+        UpstreamClient.Response response = client.get(url("/stalled"), null);
+        try (InputStream body = response.getBody()) {
+            assertThatThrownBy(body::readAllBytes).isInstanceOf(SocketTimeoutException.class);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.elvisdsouza.javafind.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserQueryBuilderTests {
+
+    private final UserQueryBuilder builder = new UserQueryBuilder();
+
+    @Test
+    void normalizesLikeDefaultQueryCreator() {
+        String[] inputs = {"spring", "spring ", "Spring-Boot", "org.apache.commons", "org/*/commons", "* a.b",
+                "a.b *", "* * a-b", "commons_io*", "A.X.y"};
+        for (String input : inputs) {
+            assertThat(UserQueryBuilder.normalize(input)).as(input).isEqualTo(legacyNormalize(input));
+        }
+    }
+
+    @Test
+    void reportsUnparseableInput() {
+        assertThatThrownBy(() -> builder.build("spring AND (")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("spring AND (");
+        assertThatThrownBy(() -> builder.build("")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void searchesGroupAndArtifactId() {
+        assertThat(builder.build("commons-io").toString())
+                .contains("groupId:commons", "artifactId:commons", "groupId:io*", "artifactId:io*");
+    }
+
+    // the regex chain constructSuperQuery used before
+    private static String legacyNormalize(String queryString) {
+        if (queryString.matches(".*(\\.|-|_|/).*")) {
+            queryString = queryString.toLowerCase().replaceAll("\\*", "X").replaceAll("\\.|-|_|/", " ")
+                    .replaceAll("X", "*").replaceAll(" \\* ", "").replaceAll("^\\* ", "").replaceAll(" \\*$", "");
+        }
+        if (!queryString.endsWith("*") && !queryString.endsWith(" ")) {
+            queryString += "*";
+        }
+        return queryString;
+    }
+}